@@ -0,0 +1,89 @@
+package ru.ivi.benchmarks;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Setup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+/**
+ * Same shapes as {@link SerializerBenchmark} through {@link java.io.Serializable} and Jackson databind,
+ * to compare {@link ru.ivi.mapping.Serializer} with the usual alternatives.
+ */
+public class BaselineBenchmark extends ShapeBenchmark {
+	
+	private final ObjectMapper mObjectMapper = new ObjectMapper();
+	
+	private byte[] mJavaBytes;
+	private byte[] mJavaArrayBytes;
+	private byte[] mJacksonBytes;
+	private byte[] mJacksonArrayBytes;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		mJavaBytes = javaWrite(object);
+		mJavaArrayBytes = javaWrite(objects);
+		mJacksonBytes = mObjectMapper.writeValueAsBytes(object);
+		mJacksonArrayBytes = mObjectMapper.writeValueAsBytes(objects);
+	}
+	
+	@Benchmark
+	public byte[] javaToBytes() throws IOException {
+		return javaWrite(object);
+	}
+	
+	@Benchmark
+	public Object javaRead() throws IOException, ClassNotFoundException {
+		return javaRead(mJavaBytes);
+	}
+	
+	@Benchmark
+	public byte[] javaArrayToBytes() throws IOException {
+		return javaWrite(objects);
+	}
+	
+	@Benchmark
+	public Object javaReadArray() throws IOException, ClassNotFoundException {
+		return javaRead(mJavaArrayBytes);
+	}
+	
+	@Benchmark
+	public byte[] jacksonToBytes() throws IOException {
+		return mObjectMapper.writeValueAsBytes(object);
+	}
+	
+	@Benchmark
+	public Object jacksonRead() throws IOException {
+		return mObjectMapper.readValue(mJacksonBytes, type);
+	}
+	
+	@Benchmark
+	public byte[] jacksonArrayToBytes() throws IOException {
+		return mObjectMapper.writeValueAsBytes(objects);
+	}
+	
+	@Benchmark
+	public Object jacksonReadArray() throws IOException {
+		return mObjectMapper.readValue(mJacksonArrayBytes, objects.getClass());
+	}
+	
+	private static byte[] javaWrite(final Object object) throws IOException {
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(object);
+		}
+		return bytes.toByteArray();
+	}
+	
+	private static Object javaRead(final byte[] bytes) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return in.readObject();
+		}
+	}
+}
@@ -0,0 +1,165 @@
+package ru.ivi.benchmarks;
+
+import org.openjdk.jmh.infra.BenchmarkParams;
+import org.openjdk.jmh.infra.IterationParams;
+import org.openjdk.jmh.profile.InternalProfiler;
+import org.openjdk.jmh.results.AggregationPolicy;
+import org.openjdk.jmh.results.IterationResult;
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.ScalarResult;
+
+import java.lang.management.LockInfo;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadInfo;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lock wait time of an iteration: exact totals from thread contention monitoring, split per monitor by sampling
+ * blocked threads about every {@link #SAMPLE_INTERVAL_MS} ms. A monitor is named by its class and the method that
+ * waits for it, e.g. {@code SerializedBytesCache in SerializedBytesCache.get}.
+ * Only monitors are seen, {@link String#intern()} contends inside the VM and shows up as lower throughput only.
+ * Threads parked on {@link java.util.concurrent.locks} locks are WAITING rather than BLOCKED, so that wait is invisible too.
+ * Every sample takes stack traces at a safepoint, pausing all threads, so throughput of a profiled run is lower
+ * than without the profiler; {@link ScalingReport} measures throughput in separate runs.
+ * Use with {@code -prof ru.ivi.benchmarks.ContentionProfiler}.
+ */
+public class ContentionProfiler implements InternalProfiler {
+	
+	public static final String PREFIX = "contention.";
+	public static final String BLOCKED_TIME = PREFIX + "blocked.time";
+	public static final String BLOCKED_COUNT = PREFIX + "blocked.count";
+	
+	private static final long SAMPLE_INTERVAL_MS = 10;
+	private static final int TOP_MONITORS_COUNT = 5;
+	
+	private final ThreadMXBean mThreadMXBean = ManagementFactory.getThreadMXBean();
+	private final Map<Long, long[]> mStartBlocked = new HashMap<>();
+	private Sampler mSampler;
+	
+	@Override
+	public String getDescription() {
+		return "Lock wait time per monitor, from thread contention monitoring and blocked threads sampling";
+	}
+	
+	@Override
+	public void beforeIteration(final BenchmarkParams benchmarkParams, final IterationParams iterationParams) {
+		if (mThreadMXBean.isThreadContentionMonitoringSupported()) {
+			mThreadMXBean.setThreadContentionMonitoringEnabled(true);
+		}
+		mStartBlocked.clear();
+		for (final ThreadInfo info : mThreadMXBean.getThreadInfo(mThreadMXBean.getAllThreadIds())) {
+			if (info != null) {
+				mStartBlocked.put(info.getThreadId(), new long[] { info.getBlockedTime(), info.getBlockedCount() });
+			}
+		}
+		mSampler = new Sampler(mThreadMXBean);
+		mSampler.start();
+	}
+	
+	@Override
+	public Collection<? extends Result> afterIteration(
+		final BenchmarkParams benchmarkParams, final IterationParams iterationParams, final IterationResult result
+	) {
+		mSampler.interrupt();
+		try {
+			mSampler.join();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		
+		long blockedTime = 0;
+		long blockedCount = 0;
+		for (final ThreadInfo info : mThreadMXBean.getThreadInfo(mThreadMXBean.getAllThreadIds())) {
+			if (info != null && info.getThreadId() != mSampler.getId()) {
+				final long[] start = mStartBlocked.get(info.getThreadId());
+				blockedTime += info.getBlockedTime() - (start == null ? 0 : start[0]);
+				blockedCount += info.getBlockedCount() - (start == null ? 0 : start[1]);
+			}
+		}
+		
+		final List<Result> results = new ArrayList<>();
+		if (mThreadMXBean.isThreadContentionMonitoringEnabled()) {
+			results.add(new ScalarResult(BLOCKED_TIME, blockedTime, "ms", AggregationPolicy.AVG));
+		}
+		results.add(new ScalarResult(BLOCKED_COUNT, blockedCount, "#", AggregationPolicy.AVG));
+		
+		final List<Map.Entry<String, Integer>> monitors = new ArrayList<>(mSampler.getSamples().entrySet());
+		Collections.sort(monitors, (a, b) -> b.getValue() - a.getValue());
+		for (int i = 0; i < monitors.size() && i < TOP_MONITORS_COUNT; i++) {
+			final Map.Entry<String, Integer> monitor = monitors.get(i);
+			final double waitTime = monitor.getValue() * mSampler.getSampleInterval();
+			results.add(new ScalarResult(PREFIX + monitor.getKey(), waitTime, "ms", AggregationPolicy.AVG));
+		}
+		return results;
+	}
+	
+	private static final class Sampler extends Thread {
+		
+		private final ThreadMXBean mThreadMXBean;
+		private final Map<String, Integer> mSamples = new HashMap<>();
+		private long mStartTime;
+		private long mEndTime;
+		private int mRounds = 0;
+		
+		Sampler(final ThreadMXBean threadMXBean) {
+			super("contention-sampler");
+			setDaemon(true);
+			mThreadMXBean = threadMXBean;
+		}
+		
+		@Override
+		public void run() {
+			mStartTime = System.nanoTime();
+			while (!isInterrupted()) {
+				mRounds++;
+				for (final ThreadInfo info : mThreadMXBean.getThreadInfo(mThreadMXBean.getAllThreadIds(), 1)) {
+					if (info != null && info.getThreadState() == State.BLOCKED) {
+						final String monitor = getMonitorName(info);
+						final Integer count = mSamples.get(monitor);
+						mSamples.put(monitor, count == null ? 1 : count + 1);
+					}
+				}
+				try {
+					Thread.sleep(SAMPLE_INTERVAL_MS);
+				} catch (final InterruptedException e) {
+					break;
+				}
+			}
+			mEndTime = System.nanoTime();
+		}
+		
+		/**
+		 * Real time between samples in ms, sleeping and taking thread dumps make it longer than requested.
+		 */
+		double getSampleInterval() {
+			return mRounds == 0 ? 0 : (mEndTime - mStartTime) / 1e6 / mRounds;
+		}
+		
+		/**
+		 * Blocked threads count by monitor name, read after the thread is joined.
+		 */
+		Map<String, Integer> getSamples() {
+			return mSamples;
+		}
+		
+		private static String getMonitorName(final ThreadInfo info) {
+			final LockInfo lock = info.getLockInfo();
+			final String lockClass = lock == null ? "unknown" : simpleName(lock.getClassName());
+			final StackTraceElement[] stack = info.getStackTrace();
+			if (stack.length == 0) {
+				return lockClass;
+			}
+			return lockClass + " in " + simpleName(stack[0].getClassName()) + "." + stack[0].getMethodName();
+		}
+		
+		private static String simpleName(final String className) {
+			return className.substring(className.lastIndexOf('.') + 1);
+		}
+	}
+}
@@ -0,0 +1,21 @@
+package ru.ivi.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+
+import ru.ivi.mapping.Copier;
+
+/**
+ * Deep copies through generated field infos.
+ */
+public class CopierBenchmark extends ShapeBenchmark {
+	
+	@Benchmark
+	public Object cloneObject() {
+		return Copier.cloneObject(object, type);
+	}
+	
+	@Benchmark
+	public Object[] cloneArray() {
+		return Copier.cloneArray(objects, type);
+	}
+}
@@ -0,0 +1,72 @@
+package ru.ivi.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.lang.reflect.Array;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import ru.ivi.benchmarks.model.JsonDocument;
+import ru.ivi.mapping.JacksonJsoner;
+import ru.ivi.mapping.Jsoner;
+
+/**
+ * Decoding of one json document per operation: {@link JacksonJsoner} with generated field infos,
+ * reflective {@link Jsoner} on org.json and Jackson databind. Every path starts from the response bytes,
+ * {@link Jsoner} includes decoding them to a string as it is used in production.
+ * SampleTime gives latency percentiles, run with {@code -prof gc} for allocation per document.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonBenchmark {
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	
+	@Param({ "CATALOGUE", "DETAIL", "UNKNOWN_SUBTREES" })
+	public JsonDocument document;
+	
+	private Class mType;
+	private Class mArrayType;
+	private byte[] mBytes;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		ShapeBenchmark.initialize();
+		mType = document.getType();
+		mArrayType = Array.newInstance(mType, 0).getClass();
+		mBytes = document.create();
+	}
+	
+	@Benchmark
+	public Object jacksonJsoner() throws IOException {
+		return document.isArray()
+			? JacksonJsoner.readArray(mBytes, 0, mBytes.length, mType)
+			: JacksonJsoner.read(mBytes, 0, mBytes.length, mType);
+	}
+	
+	@Benchmark
+	public Object jsoner() throws JSONException {
+		final String json = new String(mBytes, UTF_8);
+		return document.isArray()
+			? Jsoner.readArray(new JSONArray(json), mType, false)
+			: Jsoner.read(new JSONObject(json), mType);
+	}
+	
+	@Benchmark
+	public Object databind() throws IOException {
+		return JsonDocument.MAPPER.readValue(mBytes, document.isArray() ? mArrayType : mType);
+	}
+}
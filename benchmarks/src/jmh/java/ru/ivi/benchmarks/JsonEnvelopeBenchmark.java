@@ -0,0 +1,91 @@
+package ru.ivi.benchmarks;
+
+import android.util.Pair;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.concurrent.TimeUnit;
+
+import ru.ivi.benchmarks.model.ApiError;
+import ru.ivi.benchmarks.model.ContentDetail;
+import ru.ivi.benchmarks.model.JsonDocument;
+import ru.ivi.mapping.JacksonJsoner;
+import ru.ivi.mapping.Jsoner;
+import ru.ivi.mapping.value.ResponseData;
+
+/**
+ * {@code {"result": ...}} / {@code {"error": ...}} api envelopes, see {@link JsonBenchmark} for the compared paths.
+ * {@link JacksonJsoner} is measured both with the tree based {@code readObjectOrError} and the streaming
+ * {@code readResultObjectOrError}. {@code readObjectOrError} reads the result from the document root,
+ * so for {@code RESULT_ENVELOPE} it gets the same detail without the envelope. For {@code ERROR_ENVELOPE} it returns
+ * an empty result object and does not read the error, like for any object response with an error.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({ Mode.Throughput, Mode.SampleTime })
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class JsonEnvelopeBenchmark {
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String URL = "https://api.example.com/content";
+	
+	@Param({ "RESULT_ENVELOPE", "ERROR_ENVELOPE" })
+	public JsonDocument document;
+	
+	private byte[] mBytes;
+	private ResponseData mResponseData;
+	private ResponseData mRootResponseData;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		ShapeBenchmark.initialize();
+		mBytes = document.create();
+		mResponseData = new ResponseData(new ByteArrayInputStream(mBytes), URL);
+		final byte[] rootBytes = document == JsonDocument.RESULT_ENVELOPE ? JsonDocument.DETAIL.create() : mBytes;
+		mRootResponseData = new ResponseData(new ByteArrayInputStream(rootBytes), URL);
+	}
+	
+	@Benchmark
+	public Pair<ContentDetail, ApiError> readObjectOrError() throws IOException {
+		return JacksonJsoner.readObjectOrError(mRootResponseData, ContentDetail.class, ApiError.class);
+	}
+	
+	@Benchmark
+	public Pair<ContentDetail, ApiError> readResultObjectOrError() throws IOException {
+		return JacksonJsoner.readResultObjectOrError(mResponseData, ContentDetail.class, ApiError.class);
+	}
+	
+	@Benchmark
+	public Pair<ContentDetail, ApiError> jsoner() throws JSONException {
+		final JSONObject json = new JSONObject(new String(mBytes, UTF_8));
+		final ContentDetail result = Jsoner.read(json.optJSONObject(JacksonJsoner.RESULT), ContentDetail.class);
+		return new Pair<>(result, result == null ? Jsoner.read(json.optJSONObject(JacksonJsoner.ERROR), ApiError.class) : null);
+	}
+	
+	@Benchmark
+	public Pair<ContentDetail, ApiError> databind() throws IOException {
+		final Envelope envelope = JsonDocument.MAPPER.readValue(mBytes, Envelope.class);
+		return new Pair<>(envelope.result, envelope.result == null ? envelope.error : null);
+	}
+	
+	/**
+	 * Envelope as databind users declare it.
+	 */
+	public static class Envelope {
+		
+		public ContentDetail result;
+		public ApiError error;
+	}
+}
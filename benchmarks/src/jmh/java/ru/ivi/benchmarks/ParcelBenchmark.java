@@ -0,0 +1,226 @@
+package ru.ivi.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import ru.ivi.mapping.Parcel;
+
+/**
+ * Raw {@link Parcel} throughput, every operation writes or reads {@link #COUNT} values of a reused parcel,
+ * so results are values per second.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ParcelBenchmark {
+	
+	private static final int COUNT = 1024;
+	private static final int STRING_LENGTH = 24;
+	
+	@Param({ "0", "3" })
+	public int format;
+	
+	@Param({ "LATIN", "CYRILLIC" })
+	public String strings;
+	
+	private final int[] mInts = new int[COUNT];
+	private final long[] mLongs = new long[COUNT];
+	private final double[] mDoubles = new double[COUNT];
+	private final String[] mStrings = new String[COUNT];
+	
+	private Parcel mParcel;
+	private Parcel mIntsParcel;
+	private Parcel mCompactIntsParcel;
+	private Parcel mLongsParcel;
+	private Parcel mDoublesParcel;
+	private Parcel mStringsParcel;
+	private Parcel mIntArrayParcel;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		final Random random = new Random(42);
+		final char firstChar = "CYRILLIC".equals(strings) ? 'а' : 'a';
+		for (int i = 0; i < COUNT; i++) {
+			// mostly small ints, like ids, sizes and counters
+			mInts[i] = random.nextInt(4) == 0 ? random.nextInt() : random.nextInt(1000);
+			mLongs[i] = random.nextLong();
+			mDoubles[i] = random.nextDouble();
+			final char[] chars = new char[STRING_LENGTH];
+			for (int j = 0; j < STRING_LENGTH; j++) {
+				chars[j] = (char) (firstChar + random.nextInt(26));
+			}
+			mStrings[i] = new String(chars);
+		}
+		
+		mParcel = obtain();
+		
+		mIntsParcel = obtain();
+		mCompactIntsParcel = obtain();
+		mLongsParcel = obtain();
+		mDoublesParcel = obtain();
+		mStringsParcel = obtain();
+		mIntArrayParcel = obtain();
+		for (int i = 0; i < COUNT; i++) {
+			mIntsParcel.writeInt(mInts[i]);
+			mCompactIntsParcel.writeCompactInt(mInts[i]);
+			mLongsParcel.writeLong(mLongs[i]);
+			mDoublesParcel.writeDouble(mDoubles[i]);
+			mStringsParcel.writeString(mStrings[i]);
+		}
+		mIntArrayParcel.writeIntArray(mInts);
+	}
+	
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		mParcel.recycle();
+		mIntsParcel.recycle();
+		mCompactIntsParcel.recycle();
+		mLongsParcel.recycle();
+		mDoublesParcel.recycle();
+		mStringsParcel.recycle();
+		mIntArrayParcel.recycle();
+	}
+	
+	private Parcel obtain() {
+		final Parcel parcel = Parcel.obtain();
+		parcel.setFormat(format);
+		return parcel;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeInts() {
+		final Parcel parcel = mParcel;
+		parcel.setDataPosition(0);
+		for (int i = 0; i < COUNT; i++) {
+			parcel.writeInt(mInts[i]);
+		}
+		return parcel.dataPosition();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readInts(final Blackhole blackhole) {
+		final Parcel parcel = mIntsParcel;
+		parcel.setDataPosition(0);
+		for (int i = 0; i < COUNT; i++) {
+			blackhole.consume(parcel.readInt());
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeCompactInts() {
+		final Parcel parcel = mParcel;
+		parcel.setDataPosition(0);
+		for (int i = 0; i < COUNT; i++) {
+			parcel.writeCompactInt(mInts[i]);
+		}
+		return parcel.dataPosition();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readCompactInts(final Blackhole blackhole) {
+		final Parcel parcel = mCompactIntsParcel;
+		parcel.setDataPosition(0);
+		for (int i = 0; i < COUNT; i++) {
+			blackhole.consume(parcel.readCompactInt());
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeLongs() {
+		final Parcel parcel = mParcel;
+		parcel.setDataPosition(0);
+		for (int i = 0; i < COUNT; i++) {
+			parcel.writeLong(mLongs[i]);
+		}
+		return parcel.dataPosition();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readLongs(final Blackhole blackhole) {
+		final Parcel parcel = mLongsParcel;
+		parcel.setDataPosition(0);
+		for (int i = 0; i < COUNT; i++) {
+			blackhole.consume(parcel.readLong());
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeDoubles() {
+		final Parcel parcel = mParcel;
+		parcel.setDataPosition(0);
+		for (int i = 0; i < COUNT; i++) {
+			parcel.writeDouble(mDoubles[i]);
+		}
+		return parcel.dataPosition();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readDoubles(final Blackhole blackhole) {
+		final Parcel parcel = mDoublesParcel;
+		parcel.setDataPosition(0);
+		for (int i = 0; i < COUNT; i++) {
+			blackhole.consume(parcel.readDouble());
+		}
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeIntArray() {
+		final Parcel parcel = mParcel;
+		parcel.setDataPosition(0);
+		parcel.writeIntArray(mInts);
+		return parcel.dataPosition();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int[] readIntArray() {
+		final Parcel parcel = mIntArrayParcel;
+		parcel.setDataPosition(0);
+		final int[] ints = new int[COUNT];
+		parcel.readIntArray(ints);
+		return ints;
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public int writeStrings() {
+		final Parcel parcel = mParcel;
+		parcel.setDataPosition(0);
+		for (int i = 0; i < COUNT; i++) {
+			parcel.writeString(mStrings[i]);
+		}
+		return parcel.dataPosition();
+	}
+	
+	@Benchmark
+	@OperationsPerInvocation(COUNT)
+	public void readStrings(final Blackhole blackhole) {
+		final Parcel parcel = mStringsParcel;
+		parcel.setDataPosition(0);
+		for (int i = 0; i < COUNT; i++) {
+			blackhole.consume(parcel.readString());
+		}
+	}
+}
@@ -0,0 +1,149 @@
+package ru.ivi.benchmarks;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Group;
+import org.openjdk.jmh.annotations.GroupThreads;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import ru.ivi.benchmarks.model.Image;
+import ru.ivi.benchmarks.model.JsonDocument;
+import ru.ivi.benchmarks.model.PromoItem;
+import ru.ivi.benchmarks.model.UniqueItem;
+import ru.ivi.mapping.Copier;
+import ru.ivi.mapping.JacksonJsoner;
+import ru.ivi.mapping.Jsoner;
+import ru.ivi.mapping.Serializer;
+
+/**
+ * Single item workloads over state shared by all threads: the unique objects pool, the serialized bytes cache,
+ * object maps and reflective field caches. Run at growing thread counts with {@link ScalingReport},
+ * or by hand with {@code -t N -prof ru.ivi.benchmarks.ContentionProfiler}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ScalingBenchmark {
+	
+	private static final int ITEMS_COUNT = 1024;
+	
+	private UniqueItem[] mItems;
+	private byte[][] mBytes;
+	private byte[][] mPromoBytes;
+	private byte[][] mJsonBytes;
+	private String[] mJsonStrings;
+	
+	@Setup(Level.Trial)
+	public void setUp() throws IOException {
+		ShapeBenchmark.initialize();
+		final Random random = new Random(42);
+		mItems = new UniqueItem[ITEMS_COUNT];
+		mBytes = new byte[ITEMS_COUNT][];
+		mPromoBytes = new byte[ITEMS_COUNT][];
+		mJsonBytes = new byte[ITEMS_COUNT][];
+		mJsonStrings = new String[ITEMS_COUNT];
+		for (int i = 0; i < ITEMS_COUNT; i++) {
+			final UniqueItem item = fillItem(new UniqueItem(), random, i);
+			mItems[i] = item;
+			mBytes[i] = Serializer.toBytes(item, UniqueItem.class);
+			mJsonBytes[i] = JsonDocument.MAPPER.writeValueAsBytes(item);
+			mJsonStrings[i] = new String(mJsonBytes[i], "UTF-8");
+			// other ids, so promo items are not taken from the pool as items
+			mPromoBytes[i] = Serializer.toBytes(fillItem(new PromoItem(), random, ITEMS_COUNT + i), PromoItem.class);
+		}
+	}
+	
+	/**
+	 * Per thread position in the items, so threads do not share a counter.
+	 */
+	@State(Scope.Thread)
+	public static class Cursor {
+		
+		private int mIndex;
+		
+		@Setup(Level.Trial)
+		public void setUp() {
+			mIndex = (int) (Thread.currentThread().getId() * 31) & (ITEMS_COUNT - 1);
+		}
+		
+		int next() {
+			mIndex = (mIndex + 1) & (ITEMS_COUNT - 1);
+			return mIndex;
+		}
+	}
+	
+	@Benchmark
+	public byte[] toBytes(final Cursor cursor) {
+		return Serializer.toBytes(mItems[cursor.next()], UniqueItem.class);
+	}
+	
+	@Benchmark
+	public Object read(final Cursor cursor) {
+		return Serializer.read(mBytes[cursor.next()], UniqueItem.class);
+	}
+	
+	/**
+	 * Subclass without own fields, its object map is looked up through the superclass map.
+	 */
+	@Benchmark
+	public Object readSubclass(final Cursor cursor) {
+		return Serializer.read(mPromoBytes[cursor.next()], PromoItem.class);
+	}
+	
+	@Benchmark
+	public Object jacksonJsoner(final Cursor cursor) throws IOException {
+		final byte[] json = mJsonBytes[cursor.next()];
+		return JacksonJsoner.read(json, 0, json.length, UniqueItem.class);
+	}
+	
+	@Benchmark
+	public Object jsoner(final Cursor cursor) throws JSONException {
+		return Jsoner.read(new JSONObject(mJsonStrings[cursor.next()]), UniqueItem.class);
+	}
+	
+	@Benchmark
+	public Object cloneObject(final Cursor cursor) {
+		return Copier.cloneObject(mItems[cursor.next()], UniqueItem.class);
+	}
+	
+	/**
+	 * Writers and readers of the same items at once, like a cache being saved while screens load it.
+	 */
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(1)
+	public byte[] writer(final Cursor cursor) {
+		return Serializer.toBytes(mItems[cursor.next()], UniqueItem.class);
+	}
+	
+	@Benchmark
+	@Group("readWrite")
+	@GroupThreads(3)
+	public Object reader(final Cursor cursor) {
+		return Serializer.read(mBytes[cursor.next()], UniqueItem.class);
+	}
+	
+	private static <T extends UniqueItem> T fillItem(final T item, final Random random, final int id) {
+		item.id = id;
+		item.title = "Title " + random.nextInt(1000000);
+		item.year = 1950 + random.nextInt(70);
+		item.kpRating = random.nextInt(100) / 10f;
+		item.genres = new int[] { random.nextInt(300), random.nextInt(300) };
+		item.poster = new Image();
+		item.poster.url = "https://thumbs.example.com/" + random.nextInt(1000000) + ".jpg";
+		item.poster.width = 320;
+		item.poster.height = 480;
+		return item;
+	}
+}
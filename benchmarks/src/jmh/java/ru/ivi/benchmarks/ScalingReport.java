@@ -0,0 +1,141 @@
+package ru.ivi.benchmarks;
+
+import org.openjdk.jmh.results.Result;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Runs {@link ScalingBenchmark} at 1, 2, 4... threads up to the count of processors (or the first argument)
+ * and prints throughput, scaling efficiency and lock wait time of every workload:
+ * efficiency is throughput at N threads divided by N times throughput at 1 thread (100% is linear scaling),
+ * wait is {@link ContentionProfiler} blocked time per second of a thread, followed by the most waited monitor.
+ * Throughput is measured without the profiler, its thread dumps pause the workload, wait comes from a second run with it.
+ * Grouped workloads run in groups of their thread count, so their rows start at the group size.
+ */
+public final class ScalingReport {
+	
+	private ScalingReport() {
+	}
+	
+	public static void main(final String[] args) throws RunnerException {
+		final int maxThreads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+		final List<Integer> threadCounts = new ArrayList<>();
+		for (int threads = 1; threads < maxThreads; threads <<= 1) {
+			threadCounts.add(threads);
+		}
+		threadCounts.add(maxThreads);
+		
+		final Map<String, Row> baseRows = new LinkedHashMap<>();
+		final Map<String, Row> rows = new LinkedHashMap<>();
+		for (final int threads : threadCounts) {
+			for (final RunResult runResult : new Runner(options(threads, false)).run()) {
+				final Row row = new Row(runResult);
+				if (rows.containsKey(row.getId())) {
+					// group rounded up to the same thread count as before
+					continue;
+				}
+				final Row base = baseRows.get(row.mBenchmark);
+				if (base == null) {
+					baseRows.put(row.mBenchmark, row);
+				} else {
+					row.mEfficiency = row.mScore * base.mThreads / (base.mScore * row.mThreads);
+				}
+				rows.put(row.getId(), row);
+			}
+			for (final RunResult runResult : new Runner(options(threads, true)).run()) {
+				final Row row = rows.get(Row.getId(runResult));
+				if (row != null && row.mTopMonitor == null) {
+					row.setContention(runResult);
+				}
+			}
+		}
+		
+		System.out.println();
+		System.out.println(String.format("%-32s %7s %14s %10s %12s  %s", "Benchmark", "Threads", "ops/s", "Efficiency", "Wait ms/s", "Top monitor"));
+		for (final String benchmark : baseRows.keySet()) {
+			for (final Row row : rows.values()) {
+				if (row.mBenchmark.equals(benchmark)) {
+					System.out.println(String.format("%-32s %7d %14.0f %9.0f%% %12.1f  %s",
+						row.mBenchmark, row.mThreads, row.mScore, row.mEfficiency * 100, row.mWaitPerThreadSecond, row.mTopMonitor == null ? "" : row.mTopMonitor));
+				}
+			}
+		}
+	}
+	
+	private static Options options(final int threads, final boolean profile) {
+		final ChainedOptionsBuilder builder = new OptionsBuilder()
+			.include(ScalingBenchmark.class.getName() + "\\.")
+			.threads(threads)
+			.forks(1)
+			.warmupIterations(3)
+			.warmupTime(TimeValue.seconds(1))
+			.measurementIterations(5)
+			.measurementTime(TimeValue.seconds(1));
+		if (profile) {
+			builder.addProfiler(ContentionProfiler.class);
+		}
+		return builder.build();
+	}
+	
+	private static final class Row {
+		
+		final String mBenchmark;
+		final int mThreads;
+		final double mScore;
+		double mWaitPerThreadSecond = Double.NaN;
+		String mTopMonitor = null;
+		double mEfficiency = 1;
+		
+		Row(final RunResult runResult) {
+			mBenchmark = getBenchmark(runResult);
+			mThreads = runResult.getParams().getThreads();
+			mScore = runResult.getPrimaryResult().getScore();
+		}
+		
+		String getId() {
+			return mBenchmark + "@" + mThreads;
+		}
+		
+		static String getId(final RunResult runResult) {
+			return getBenchmark(runResult) + "@" + runResult.getParams().getThreads();
+		}
+		
+		private static String getBenchmark(final RunResult runResult) {
+			final String label = runResult.getPrimaryResult().getLabel();
+			return label.substring(label.lastIndexOf('.') + 1);
+		}
+		
+		/**
+		 * Takes wait time from a run of the same workload with {@link ContentionProfiler}.
+		 */
+		void setContention(final RunResult runResult) {
+			final Map<String, Result> secondary = runResult.getSecondaryResults();
+			final Result blockedTime = secondary.get(ContentionProfiler.BLOCKED_TIME);
+			final double measuredSeconds = runResult.getParams().getMeasurement().getTime().convertTo(TimeUnit.MILLISECONDS) / 1000.0;
+			mWaitPerThreadSecond = blockedTime == null ? Double.NaN : blockedTime.getScore() / (measuredSeconds * mThreads);
+			
+			String topMonitor = "";
+			double topWait = 0;
+			for (final Map.Entry<String, Result> entry : secondary.entrySet()) {
+				final String key = entry.getKey();
+				if (key.startsWith(ContentionProfiler.PREFIX) && !key.equals(ContentionProfiler.BLOCKED_TIME)
+					&& !key.equals(ContentionProfiler.BLOCKED_COUNT) && entry.getValue().getScore() > topWait) {
+					topWait = entry.getValue().getScore();
+					topMonitor = key.substring(ContentionProfiler.PREFIX.length());
+				}
+			}
+			mTopMonitor = topMonitor;
+		}
+	}
+}
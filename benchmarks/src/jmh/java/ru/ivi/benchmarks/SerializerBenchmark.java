@@ -0,0 +1,47 @@
+package ru.ivi.benchmarks;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+
+import ru.ivi.mapping.Serializer;
+
+/**
+ * {@link Serializer} blobs of single objects and arrays, in the original and the most compact format.
+ */
+public class SerializerBenchmark extends ShapeBenchmark {
+	
+	@Param({ "V1", "V3" })
+	public String format;
+	
+	private byte[] mBytes;
+	private byte[] mArrayBytes;
+	
+	@Setup(Level.Trial)
+	public void setUp() {
+		Serializer.setFormat("V3".equals(format) ? Serializer.FORMAT_V3 : Serializer.FORMAT_V1);
+		mBytes = Serializer.toBytes(object, type);
+		mArrayBytes = Serializer.arrayToBytes(objects, type);
+	}
+	
+	@Benchmark
+	public byte[] toBytes() {
+		return Serializer.toBytes(object, type);
+	}
+	
+	@Benchmark
+	public Object read() {
+		return Serializer.read(mBytes, type);
+	}
+	
+	@Benchmark
+	public byte[] arrayToBytes() {
+		return Serializer.arrayToBytes(objects, type);
+	}
+	
+	@Benchmark
+	public Object[] readArray() {
+		return Serializer.readArray(mArrayBytes, type);
+	}
+}
@@ -0,0 +1,53 @@
+package ru.ivi.benchmarks;
+
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import ru.ivi.benchmarks.model.Shape;
+import ru.ivi.mapping.Copier;
+import ru.ivi.mapping.Serializer;
+import ru.ivi.processor.ValueMapFiller;
+
+/**
+ * Common state of benchmarks over model shapes: one object and an array of {@link #ARRAY_SIZE} objects of the shape.
+ * Run with {@code -prof gc} (the default of the gradle task) to get {@code gc.alloc.rate.norm}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public abstract class ShapeBenchmark {
+	
+	public static final int ARRAY_SIZE = 100;
+	
+	private static final long SEED = 42;
+	
+	@Param({ "SMALL", "WIDE", "DEEP", "ARRAYS" })
+	public Shape shape;
+	
+	protected Class type;
+	protected Object object;
+	protected Object[] objects;
+	
+	@Setup(Level.Trial)
+	public void setUpShape() throws Exception {
+		initialize();
+		final Random random = new Random(SEED);
+		type = shape.getType();
+		object = shape.create(random);
+		objects = shape.createArray(random, ARRAY_SIZE);
+	}
+	
+	static void initialize() {
+		Serializer.initialize();
+		Copier.setValueMap(new ValueMapFiller());
+	}
+}
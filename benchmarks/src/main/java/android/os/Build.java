@@ -0,0 +1,18 @@
+package android.os;
+
+/**
+ * JVM shim for benchmarks, reports the latest SDK so no compatibility branches are taken.
+ */
+public class Build {
+	
+	public static class VERSION {
+		
+		public static final int SDK_INT = 28;
+	}
+	
+	public static class VERSION_CODES {
+		
+		public static final int KITKAT = 19;
+		public static final int LOLLIPOP = 21;
+	}
+}
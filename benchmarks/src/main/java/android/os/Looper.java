@@ -0,0 +1,24 @@
+package android.os;
+
+/**
+ * JVM shim for benchmarks, no thread is the main one.
+ */
+public final class Looper {
+	
+	private static final Looper MAIN_LOOPER = new Looper();
+	
+	private Looper() {
+	}
+	
+	public static Looper getMainLooper() {
+		return MAIN_LOOPER;
+	}
+	
+	public static Looper myLooper() {
+		return null;
+	}
+	
+	public Thread getThread() {
+		return null;
+	}
+}
@@ -0,0 +1,22 @@
+package android.os;
+
+/**
+ * JVM shim for benchmarks.
+ */
+public final class SystemClock {
+	
+	private SystemClock() {
+	}
+	
+	public static long elapsedRealtimeNanos() {
+		return System.nanoTime();
+	}
+	
+	public static long elapsedRealtime() {
+		return System.nanoTime() / 1000000;
+	}
+	
+	public static long uptimeMillis() {
+		return System.nanoTime() / 1000000;
+	}
+}
@@ -0,0 +1,32 @@
+package android.text;
+
+/**
+ * JVM shim for benchmarks.
+ */
+public class TextUtils {
+	
+	public static boolean isEmpty(final CharSequence str) {
+		return str == null || str.length() == 0;
+	}
+	
+	public static boolean equals(final CharSequence a, final CharSequence b) {
+		return a == b || a != null && b != null && a.toString().equals(b.toString());
+	}
+	
+	public static String join(final CharSequence delimiter, final Iterable tokens) {
+		final StringBuilder sb = new StringBuilder();
+		boolean first = true;
+		for (final Object token : tokens) {
+			if (!first) {
+				sb.append(delimiter);
+			}
+			first = false;
+			sb.append(token);
+		}
+		return sb.toString();
+	}
+	
+	public static String join(final CharSequence delimiter, final Object[] tokens) {
+		return join(delimiter, java.util.Arrays.asList(tokens));
+	}
+}
@@ -0,0 +1,38 @@
+package android.util;
+
+/**
+ * JVM shim for benchmarks, logging is dropped so it does not skew measurements.
+ */
+public final class Log {
+	
+	private Log() {
+	}
+	
+	public static int v(final String tag, final String msg) {
+		return 0;
+	}
+	
+	public static int d(final String tag, final String msg) {
+		return 0;
+	}
+	
+	public static int i(final String tag, final String msg) {
+		return 0;
+	}
+	
+	public static int w(final String tag, final String msg) {
+		return 0;
+	}
+	
+	public static int e(final String tag, final String msg) {
+		return 0;
+	}
+	
+	public static int e(final String tag, final String msg, final Throwable tr) {
+		return 0;
+	}
+	
+	public static String getStackTraceString(final Throwable tr) {
+		return String.valueOf(tr);
+	}
+}
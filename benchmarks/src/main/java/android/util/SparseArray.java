@@ -0,0 +1,63 @@
+package android.util;
+
+import java.util.Arrays;
+
+/**
+ * JVM shim for benchmarks, keys are kept sorted like in the platform class.
+ */
+public class SparseArray<E> {
+	
+	private int[] mKeys = new int[8];
+	private Object[] mValues = new Object[8];
+	private int mSize = 0;
+	
+	public E get(final int key) {
+		return get(key, null);
+	}
+	
+	public E get(final int key, final E valueIfKeyNotFound) {
+		final int i = Arrays.binarySearch(mKeys, 0, mSize, key);
+		//noinspection unchecked
+		return i < 0 ? valueIfKeyNotFound : (E) mValues[i];
+	}
+	
+	public void put(final int key, final E value) {
+		int i = Arrays.binarySearch(mKeys, 0, mSize, key);
+		if (i >= 0) {
+			mValues[i] = value;
+			return;
+		}
+		i = ~i;
+		if (mSize == mKeys.length) {
+			mKeys = Arrays.copyOf(mKeys, mSize << 1);
+			mValues = Arrays.copyOf(mValues, mSize << 1);
+		}
+		System.arraycopy(mKeys, i, mKeys, i + 1, mSize - i);
+		System.arraycopy(mValues, i, mValues, i + 1, mSize - i);
+		mKeys[i] = key;
+		mValues[i] = value;
+		mSize++;
+	}
+	
+	public void delete(final int key) {
+		final int i = Arrays.binarySearch(mKeys, 0, mSize, key);
+		if (i >= 0) {
+			System.arraycopy(mKeys, i + 1, mKeys, i, mSize - i - 1);
+			System.arraycopy(mValues, i + 1, mValues, i, mSize - i - 1);
+			mValues[--mSize] = null;
+		}
+	}
+	
+	public int size() {
+		return mSize;
+	}
+	
+	public int keyAt(final int index) {
+		return mKeys[index];
+	}
+	
+	public E valueAt(final int index) {
+		//noinspection unchecked
+		return (E) mValues[index];
+	}
+}
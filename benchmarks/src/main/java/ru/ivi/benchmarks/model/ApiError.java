@@ -0,0 +1,15 @@
+package ru.ivi.benchmarks.model;
+
+import ru.ivi.processor.Value;
+
+/**
+ * Error object of api envelopes.
+ */
+public class ApiError {
+	
+	@Value(jsonKey = "code")
+	public int code;
+	
+	@Value(jsonKey = "message")
+	public String message;
+}
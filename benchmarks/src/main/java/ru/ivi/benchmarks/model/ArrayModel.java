@@ -0,0 +1,32 @@
+package ru.ivi.benchmarks.model;
+
+import java.io.Serializable;
+
+import ru.ivi.processor.Value;
+
+/**
+ * Object dominated by primitive, string and object arrays.
+ */
+public class ArrayModel implements Serializable {
+	
+	@Value
+	public int id;
+	
+	@Value
+	public int[] ints;
+	
+	@Value
+	public long[] longs;
+	
+	@Value
+	public double[] doubles;
+	
+	@Value
+	public boolean[] flags;
+	
+	@Value
+	public String[] tags;
+	
+	@Value
+	public SmallModel[] items;
+}
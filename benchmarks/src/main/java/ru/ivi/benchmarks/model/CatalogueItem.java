@@ -0,0 +1,39 @@
+package ru.ivi.benchmarks.model;
+
+import ru.ivi.processor.Value;
+
+/**
+ * Element of catalogue json lists.
+ */
+public class CatalogueItem {
+	
+	@Value(jsonKey = "id")
+	public int id;
+	
+	@Value(jsonKey = "title")
+	public String title;
+	
+	@Value(jsonKey = "year")
+	public int year;
+	
+	@Value(jsonKey = "kp_rating")
+	public float kpRating;
+	
+	@Value(jsonKey = "imdb_rating")
+	public float imdbRating;
+	
+	@Value(jsonKey = "genres")
+	public int[] genres;
+	
+	@Value(jsonKey = "free")
+	public boolean free;
+	
+	@Value(jsonKey = "restrict")
+	public String restrict;
+	
+	@Value(jsonKey = "duration_minutes")
+	public int durationMinutes;
+	
+	@Value(jsonKey = "poster")
+	public Image poster;
+}
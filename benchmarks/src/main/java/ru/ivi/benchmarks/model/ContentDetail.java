@@ -0,0 +1,42 @@
+package ru.ivi.benchmarks.model;
+
+import ru.ivi.processor.Value;
+
+/**
+ * Detail json of a content with nested objects and arrays.
+ */
+public class ContentDetail {
+	
+	@Value(jsonKey = "id")
+	public int id;
+	
+	@Value(jsonKey = "title")
+	public String title;
+	
+	@Value(jsonKey = "description")
+	public String description;
+	
+	@Value(jsonKey = "year")
+	public int year;
+	
+	@Value(jsonKey = "country")
+	public String country;
+	
+	@Value(jsonKey = "kp_rating")
+	public float kpRating;
+	
+	@Value(jsonKey = "genres")
+	public int[] genres;
+	
+	@Value(jsonKey = "poster")
+	public Image poster;
+	
+	@Value(jsonKey = "thumbs")
+	public Image[] thumbs;
+	
+	@Value(jsonKey = "persons")
+	public Person[] persons;
+	
+	@Value(jsonKey = "seasons")
+	public Season[] seasons;
+}
@@ -0,0 +1,23 @@
+package ru.ivi.benchmarks.model;
+
+import java.io.Serializable;
+
+import ru.ivi.processor.Value;
+
+/**
+ * Chain of nested objects, measures per-object overhead rather than per-field one.
+ */
+public class DeepModel implements Serializable {
+	
+	@Value
+	public int level;
+	
+	@Value
+	public String name;
+	
+	@Value
+	public SmallModel item;
+	
+	@Value
+	public DeepModel child;
+}
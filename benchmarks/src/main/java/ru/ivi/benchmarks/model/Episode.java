@@ -0,0 +1,24 @@
+package ru.ivi.benchmarks.model;
+
+import ru.ivi.processor.Value;
+
+/**
+ * Episode of a season.
+ */
+public class Episode {
+	
+	@Value(jsonKey = "id")
+	public int id;
+	
+	@Value(jsonKey = "title")
+	public String title;
+	
+	@Value(jsonKey = "episode")
+	public int episode;
+	
+	@Value(jsonKey = "duration")
+	public int duration;
+	
+	@Value(jsonKey = "release_date")
+	public long releaseDate;
+}
@@ -0,0 +1,18 @@
+package ru.ivi.benchmarks.model;
+
+import ru.ivi.processor.Value;
+
+/**
+ * Poster or thumbnail of catalogue json.
+ */
+public class Image {
+	
+	@Value(jsonKey = "url")
+	public String url;
+	
+	@Value(jsonKey = "width")
+	public int width;
+	
+	@Value(jsonKey = "height")
+	public int height;
+}
@@ -0,0 +1,229 @@
+package ru.ivi.benchmarks.model;
+
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategy;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Json documents shaped like api responses, built from a seeded random so runs are comparable.
+ */
+public enum JsonDocument {
+	
+	/**
+	 * Array of {@link #CATALOGUE_SIZE} {@link CatalogueItem}s.
+	 */
+	CATALOGUE(CatalogueItem.class, true) {
+		@Override
+		Object createNode(final Random random) {
+			final ArrayNode array = MAPPER.createArrayNode();
+			for (int i = 0; i < CATALOGUE_SIZE; i++) {
+				array.add(MAPPER.<ObjectNode>valueToTree(createItem(random)));
+			}
+			return array;
+		}
+	},
+	/**
+	 * Single {@link ContentDetail} with seasons, episodes and cast.
+	 */
+	DETAIL(ContentDetail.class, false) {
+		@Override
+		Object createNode(final Random random) {
+			return MAPPER.valueToTree(createDetail(random));
+		}
+	},
+	/**
+	 * Catalogue items with large fields that models do not declare, most of the document is skipped.
+	 */
+	UNKNOWN_SUBTREES(CatalogueItem.class, true) {
+		@Override
+		Object createNode(final Random random) {
+			final ArrayNode array = MAPPER.createArrayNode();
+			for (int i = 0; i < UNKNOWN_SUBTREES_SIZE; i++) {
+				final ObjectNode item = MAPPER.valueToTree(createItem(random));
+				item.set("stats", createStats(random));
+				item.set("related", createRelated(random));
+				array.add(item);
+			}
+			return array;
+		}
+	},
+	/**
+	 * {@code {"result": detail}} envelope.
+	 */
+	RESULT_ENVELOPE(ContentDetail.class, false) {
+		@Override
+		Object createNode(final Random random) {
+			final ObjectNode envelope = MAPPER.createObjectNode();
+			envelope.set("result", MAPPER.valueToTree(createDetail(random)));
+			envelope.put("request_id", Long.toHexString(random.nextLong()));
+			return envelope;
+		}
+	},
+	/**
+	 * {@code {"error": {...}}} envelope.
+	 */
+	ERROR_ENVELOPE(ContentDetail.class, false) {
+		@Override
+		Object createNode(final Random random) {
+			final ApiError error = new ApiError();
+			error.code = 404;
+			error.message = "content " + random.nextInt(1000000) + " not found";
+			final ObjectNode envelope = MAPPER.createObjectNode();
+			envelope.set("error", MAPPER.valueToTree(error));
+			envelope.put("request_id", Long.toHexString(random.nextLong()));
+			return envelope;
+		}
+	};
+	
+	public static final int CATALOGUE_SIZE = 100;
+	public static final int UNKNOWN_SUBTREES_SIZE = 20;
+	
+	/**
+	 * Mapper with the snake case naming of {@code jsonKey}s of the models, also used as the databind baseline.
+	 */
+	public static final ObjectMapper MAPPER = new ObjectMapper()
+		.setPropertyNamingStrategy(PropertyNamingStrategy.SNAKE_CASE)
+		.configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+	
+	private static final long SEED = 42;
+	private static final String[] WORDS = "the of and a to in is you that it he was for on are as with his they at be this have from".split(" ");
+	
+	private final Class<?> mType;
+	private final boolean mIsArray;
+	
+	JsonDocument(final Class<?> type, final boolean isArray) {
+		mType = type;
+		mIsArray = isArray;
+	}
+	
+	public Class<?> getType() {
+		return mType;
+	}
+	
+	/**
+	 * @return true if the document is an array of {@link #getType()} objects
+	 */
+	public boolean isArray() {
+		return mIsArray;
+	}
+	
+	abstract Object createNode(Random random);
+	
+	public byte[] create() throws IOException {
+		return MAPPER.writeValueAsBytes(createNode(new Random(SEED)));
+	}
+	
+	private static CatalogueItem createItem(final Random random) {
+		final CatalogueItem item = new CatalogueItem();
+		item.id = random.nextInt(1000000);
+		item.title = text(random, 3);
+		item.year = 1950 + random.nextInt(70);
+		item.kpRating = random.nextInt(100) / 10f;
+		item.imdbRating = random.nextInt(100) / 10f;
+		item.genres = new int[1 + random.nextInt(4)];
+		for (int i = 0; i < item.genres.length; i++) {
+			item.genres[i] = random.nextInt(300);
+		}
+		item.free = random.nextBoolean();
+		item.restrict = random.nextInt(4) == 0 ? "18+" : null;
+		item.durationMinutes = 20 + random.nextInt(160);
+		item.poster = createImage(random);
+		return item;
+	}
+	
+	private static ContentDetail createDetail(final Random random) {
+		final ContentDetail detail = new ContentDetail();
+		detail.id = random.nextInt(1000000);
+		detail.title = text(random, 3);
+		detail.description = text(random, 80);
+		detail.year = 1950 + random.nextInt(70);
+		detail.country = "Russia";
+		detail.kpRating = random.nextInt(100) / 10f;
+		detail.genres = new int[] { random.nextInt(300), random.nextInt(300) };
+		detail.poster = createImage(random);
+		detail.thumbs = new Image[10];
+		for (int i = 0; i < detail.thumbs.length; i++) {
+			detail.thumbs[i] = createImage(random);
+		}
+		detail.persons = new Person[30];
+		for (int i = 0; i < detail.persons.length; i++) {
+			final Person person = new Person();
+			person.id = random.nextInt(1000000);
+			person.name = text(random, 2);
+			person.role = i < 3 ? "director" : "actor";
+			detail.persons[i] = person;
+		}
+		detail.seasons = new Season[3];
+		for (int i = 0; i < detail.seasons.length; i++) {
+			final Season season = new Season();
+			season.number = i + 1;
+			season.title = "Season " + (i + 1);
+			season.episodes = new Episode[20];
+			for (int j = 0; j < season.episodes.length; j++) {
+				final Episode episode = new Episode();
+				episode.id = random.nextInt(1000000);
+				episode.title = text(random, 4);
+				episode.episode = j + 1;
+				episode.duration = 1200 + random.nextInt(2400);
+				episode.releaseDate = 1500000000000L + random.nextInt(Integer.MAX_VALUE);
+				season.episodes[j] = episode;
+			}
+			detail.seasons[i] = season;
+		}
+		return detail;
+	}
+	
+	private static Image createImage(final Random random) {
+		final Image image = new Image();
+		image.url = "https://thumbs.example.com/" + random.nextInt(1000000) + ".jpg";
+		image.width = 160 << random.nextInt(3);
+		image.height = image.width * 3 / 2;
+		return image;
+	}
+	
+	/**
+	 * Analytics-like object, nested objects with number arrays.
+	 */
+	private static ObjectNode createStats(final Random random) {
+		final ObjectNode stats = MAPPER.createObjectNode();
+		for (int i = 0; i < 10; i++) {
+			final ObjectNode period = stats.putObject("period_" + i);
+			period.put("views", random.nextInt(1000000));
+			period.put("share", random.nextDouble());
+			final ArrayNode daily = period.putArray("daily");
+			for (int j = 0; j < 30; j++) {
+				daily.add(random.nextInt(10000));
+			}
+		}
+		return stats;
+	}
+	
+	private static ArrayNode createRelated(final Random random) {
+		final ArrayNode related = MAPPER.createArrayNode();
+		for (int i = 0; i < 10; i++) {
+			final ObjectNode item = related.addObject();
+			item.put("id", random.nextInt(1000000));
+			item.put("title", text(random, 3));
+			item.put("score", random.nextDouble());
+			item.put("reason", text(random, 6));
+			item.putArray("tags").add(text(random, 1)).add(text(random, 1));
+		}
+		return related;
+	}
+	
+	private static String text(final Random random, final int wordCount) {
+		final StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < wordCount; i++) {
+			if (i > 0) {
+				sb.append(' ');
+			}
+			sb.append(WORDS[random.nextInt(WORDS.length)]);
+		}
+		return sb.toString();
+	}
+}
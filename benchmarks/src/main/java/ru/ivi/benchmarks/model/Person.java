@@ -0,0 +1,18 @@
+package ru.ivi.benchmarks.model;
+
+import ru.ivi.processor.Value;
+
+/**
+ * Cast member of a content detail.
+ */
+public class Person {
+	
+	@Value(jsonKey = "id")
+	public int id;
+	
+	@Value(jsonKey = "name")
+	public String name;
+	
+	@Value(jsonKey = "role")
+	public String role;
+}
@@ -0,0 +1,9 @@
+package ru.ivi.benchmarks.model;
+
+/**
+ * Catalogue item of a promo block, has no fields of its own: its object map is derived from the {@link UniqueItem} one
+ * and added to the value map on first use.
+ */
+public class PromoItem extends UniqueItem {
+	
+}
@@ -0,0 +1,18 @@
+package ru.ivi.benchmarks.model;
+
+import ru.ivi.processor.Value;
+
+/**
+ * Season of a content detail.
+ */
+public class Season {
+	
+	@Value(jsonKey = "number")
+	public int number;
+	
+	@Value(jsonKey = "title")
+	public String title;
+	
+	@Value(jsonKey = "episodes")
+	public Episode[] episodes;
+}
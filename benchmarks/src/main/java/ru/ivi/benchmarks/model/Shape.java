@@ -0,0 +1,147 @@
+package ru.ivi.benchmarks.model;
+
+import java.util.Random;
+
+/**
+ * Model shapes measured by benchmarks, objects are filled from a seeded random so runs are comparable.
+ */
+public enum Shape {
+	
+	SMALL(SmallModel.class) {
+		@Override
+		public Object create(final Random random) {
+			return createSmall(random);
+		}
+	},
+	WIDE(WideModel.class) {
+		@Override
+		public Object create(final Random random) {
+			final WideModel model = new WideModel();
+			model.id = random.nextInt(1000000);
+			model.createdAt = 1500000000000L + random.nextInt(Integer.MAX_VALUE);
+			model.updatedAt = model.createdAt + random.nextInt(100000);
+			model.title = text(random, 24);
+			model.originalTitle = text(random, 24);
+			model.description = text(random, 400);
+			model.synopsis = text(random, 120);
+			model.country = "Russia";
+			model.language = "ru";
+			model.year = 1950 + random.nextInt(70);
+			model.duration = random.nextInt(10000);
+			model.ageRating = random.nextInt(19);
+			model.seasonCount = random.nextInt(10);
+			model.episodeCount = random.nextInt(200);
+			model.rating = random.nextFloat() * 10;
+			model.imdbRating = random.nextFloat() * 10;
+			model.kinopoiskRating = random.nextFloat() * 10;
+			model.price = random.nextInt(100000) / 100.0;
+			model.discount = random.nextDouble();
+			model.free = random.nextBoolean();
+			model.hd = random.nextBoolean();
+			model.uhd = random.nextBoolean();
+			model.downloadable = random.nextBoolean();
+			model.favourite = random.nextBoolean();
+			model.posterUrl = "https://thumbs.example.com/poster/" + random.nextInt() + ".jpg";
+			model.thumbUrl = "https://thumbs.example.com/thumb/" + random.nextInt() + ".jpg";
+			model.trailerUrl = "https://video.example.com/trailer/" + random.nextInt() + ".mp4";
+			model.shareUrl = "https://www.example.com/watch/" + model.id;
+			model.watchTime = random.nextInt(10000);
+			model.availableUntil = model.createdAt + 86400000L * random.nextInt(365);
+			model.quality = (byte) random.nextInt(4);
+			model.restrict = random.nextBoolean() ? "18+" : null;
+			return model;
+		}
+	},
+	DEEP(DeepModel.class) {
+		@Override
+		public Object create(final Random random) {
+			DeepModel model = null;
+			for (int level = DEEP_LEVELS - 1; level >= 0; level--) {
+				final DeepModel parent = new DeepModel();
+				parent.level = level;
+				parent.name = text(random, 12);
+				parent.item = createSmall(random);
+				parent.child = model;
+				model = parent;
+			}
+			return model;
+		}
+	},
+	ARRAYS(ArrayModel.class) {
+		@Override
+		public Object create(final Random random) {
+			final ArrayModel model = new ArrayModel();
+			model.id = random.nextInt(1000000);
+			model.ints = new int[ARRAY_LENGTH];
+			model.longs = new long[ARRAY_LENGTH];
+			model.doubles = new double[ARRAY_LENGTH];
+			model.flags = new boolean[ARRAY_LENGTH];
+			model.tags = new String[ARRAY_LENGTH / 4];
+			model.items = new SmallModel[ARRAY_LENGTH / 8];
+			for (int i = 0; i < ARRAY_LENGTH; i++) {
+				model.ints[i] = random.nextInt();
+				model.longs[i] = random.nextLong();
+				model.doubles[i] = random.nextDouble();
+				model.flags[i] = random.nextBoolean();
+			}
+			for (int i = 0; i < model.tags.length; i++) {
+				model.tags[i] = text(random, 8);
+			}
+			for (int i = 0; i < model.items.length; i++) {
+				model.items[i] = createSmall(random);
+			}
+			return model;
+		}
+	};
+	
+	public static final int DEEP_LEVELS = 8;
+	public static final int ARRAY_LENGTH = 256;
+	
+	private static final String ALPHABET = "abcdefghijklmnopqrstuvwxyz абвгдеёжзийклмнопрстуфхцчшщъыьэюя";
+	
+	private final Class<?> mType;
+	
+	Shape(final Class<?> type) {
+		mType = type;
+	}
+	
+	public Class<?> getType() {
+		return mType;
+	}
+	
+	public abstract Object create(Random random);
+	
+	/**
+	 * @return array of the shape's type with {@code count} objects
+	 */
+	public Object[] createArray(final Random random, final int count) {
+		final Object[] objects = (Object[]) java.lang.reflect.Array.newInstance(mType, count);
+		for (int i = 0; i < count; i++) {
+			objects[i] = create(random);
+		}
+		return objects;
+	}
+	
+	private static SmallModel createSmall(final Random random) {
+		final SmallModel model = new SmallModel();
+		model.id = random.nextInt(1000000);
+		model.title = text(random, 20);
+		model.rating = random.nextFloat() * 10;
+		model.free = random.nextBoolean();
+		return model;
+	}
+	
+	/**
+	 * Mostly latin text with some cyrillic, like catalogue titles.
+	 */
+	private static String text(final Random random, final int length) {
+		final char[] chars = new char[length];
+		final boolean cyrillic = random.nextInt(4) == 0;
+		final int from = cyrillic ? 27 : 0;
+		final int to = cyrillic ? ALPHABET.length() : 27;
+		for (int i = 0; i < length; i++) {
+			chars[i] = ALPHABET.charAt(from + random.nextInt(to - from));
+		}
+		return new String(chars);
+	}
+}
@@ -0,0 +1,23 @@
+package ru.ivi.benchmarks.model;
+
+import java.io.Serializable;
+
+import ru.ivi.processor.Value;
+
+/**
+ * Typical list item: a few primitives and a string.
+ */
+public class SmallModel implements Serializable {
+	
+	@Value
+	public int id;
+	
+	@Value
+	public String title;
+	
+	@Value
+	public float rating;
+	
+	@Value
+	public boolean free;
+}
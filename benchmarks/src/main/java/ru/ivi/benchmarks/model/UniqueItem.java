@@ -0,0 +1,55 @@
+package ru.ivi.benchmarks.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.util.Arrays;
+
+import ru.ivi.mapping.value.UniqueObject;
+import ru.ivi.mapping.value.VersionedObject;
+import ru.ivi.processor.Value;
+
+/**
+ * Catalogue item with a unique id, goes through the unique objects pool and the serialized bytes cache.
+ * Fields are public, so the content version is derived from them on every call and changes with any field.
+ */
+public class UniqueItem implements UniqueObject, VersionedObject {
+	
+	@Value(jsonKey = "id", uniqueField = true)
+	public int id;
+	
+	@Value(jsonKey = "title")
+	public String title;
+	
+	@Value(jsonKey = "year")
+	public int year;
+	
+	@Value(jsonKey = "kp_rating")
+	public float kpRating;
+	
+	@Value(jsonKey = "genres")
+	public int[] genres;
+	
+	@Value(jsonKey = "poster")
+	public Image poster;
+	
+	@Override
+	public boolean skipOnRead() {
+		return false;
+	}
+	
+	@JsonIgnore
+	@Override
+	public long getContentVersion() {
+		long version = id;
+		version = 31 * version + (title == null ? 0 : title.hashCode());
+		version = 31 * version + year;
+		version = 31 * version + Float.floatToIntBits(kpRating);
+		version = 31 * version + Arrays.hashCode(genres);
+		if (poster != null) {
+			version = 31 * version + (poster.url == null ? 0 : poster.url.hashCode());
+			version = 31 * version + poster.width;
+			version = 31 * version + poster.height;
+		}
+		return version;
+	}
+}
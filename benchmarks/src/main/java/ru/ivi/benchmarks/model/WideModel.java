@@ -0,0 +1,107 @@
+package ru.ivi.benchmarks.model;
+
+import java.io.Serializable;
+
+import ru.ivi.processor.Value;
+
+/**
+ * Catalogue detail with many flat fields of all primitive kinds.
+ */
+public class WideModel implements Serializable {
+	
+	@Value
+	public int id;
+	
+	@Value
+	public long createdAt;
+	
+	@Value
+	public long updatedAt;
+	
+	@Value
+	public String title;
+	
+	@Value
+	public String originalTitle;
+	
+	@Value
+	public String description;
+	
+	@Value
+	public String synopsis;
+	
+	@Value
+	public String country;
+	
+	@Value
+	public String language;
+	
+	@Value
+	public int year;
+	
+	@Value
+	public int duration;
+	
+	@Value
+	public int ageRating;
+	
+	@Value
+	public int seasonCount;
+	
+	@Value
+	public int episodeCount;
+	
+	@Value
+	public float rating;
+	
+	@Value
+	public float imdbRating;
+	
+	@Value
+	public float kinopoiskRating;
+	
+	@Value
+	public double price;
+	
+	@Value
+	public double discount;
+	
+	@Value
+	public boolean free;
+	
+	@Value
+	public boolean hd;
+	
+	@Value
+	public boolean uhd;
+	
+	@Value
+	public boolean downloadable;
+	
+	@Value
+	public boolean favourite;
+	
+	@Value
+	public String posterUrl;
+	
+	@Value
+	public String thumbUrl;
+	
+	@Value
+	public String trailerUrl;
+	
+	@Value
+	public String shareUrl;
+	
+	@Value
+	public int watchTime;
+	
+	@Value
+	public long availableUntil;
+	
+	@Value
+	public byte quality;
+	
+	@Value
+	public String restrict;
+}
@@ -0,0 +1,117 @@
+package ru.ivi.mapping;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import org.junit.After;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.Random;
+
+import ru.ivi.benchmarks.model.Image;
+import ru.ivi.benchmarks.model.Shape;
+import ru.ivi.benchmarks.model.UniqueItem;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Every format flag writes objects and arrays of all model shapes which read back equal, compared as databind json.
+ */
+public class FormatRoundTripTest {
+	
+	private static final int[] FORMATS = {
+		Serializer.FORMAT_V1,
+		Serializer.FORMAT_V2,
+		Serializer.FORMAT_V3,
+		Serializer.FORMAT_V1 | Serializer.FORMAT_INDEXED_ARRAYS,
+		Serializer.FORMAT_V3 | Serializer.FORMAT_INDEXED_ARRAYS,
+		Serializer.FORMAT_V1 | Serializer.FORMAT_STRUCTURED_KEYS,
+		Serializer.FORMAT_V3 | Serializer.FORMAT_STRUCTURED_KEYS
+	};
+	private static final int ARRAY_SIZE = 50;
+	private static final ObjectMapper MAPPER = new ObjectMapper();
+	
+	@BeforeClass
+	public static void initialize() {
+		Serializer.initialize();
+	}
+	
+	@After
+	public void tearDown() {
+		Serializer.setFormat(Serializer.FORMAT_V1);
+		Serializer.clearObjectPool();
+	}
+	
+	@Test
+	public void objects() throws Exception {
+		for (final int format : FORMATS) {
+			Serializer.setFormat(format);
+			for (final Shape shape : Shape.values()) {
+				final Object object = shape.create(new Random(format));
+				final byte[] bytes = Serializer.toBytes(object, shape.getType());
+				Serializer.clearObjectPool();
+				assertEquals(format + " " + shape, json(object), json(Serializer.read(bytes, shape.getType())));
+			}
+		}
+	}
+	
+	@Test
+	public void arrays() throws Exception {
+		for (final int format : FORMATS) {
+			Serializer.setFormat(format);
+			for (final Shape shape : Shape.values()) {
+				final Object[] objects = shape.createArray(new Random(format), ARRAY_SIZE);
+				objects[1] = null;
+				final byte[] bytes = Serializer.arrayToBytes(objects, shape.getType());
+				final String message = format + " " + shape;
+				Serializer.clearObjectPool();
+				assertEquals(message, json(objects), json(Serializer.readArray(bytes, shape.getType())));
+				
+				final LazySerializedArray<?> lazy = Serializer.readLazyArray(bytes, shape.getType());
+				for (int i = objects.length - 1; i >= 0; i--) {
+					assertEquals(message + " " + i, json(objects[i]), json(lazy.get(i)));
+				}
+				
+				final ByteArrayOutputStream out = new ByteArrayOutputStream();
+				Serializer.writeArray(out, objects, shape.getType());
+				Serializer.clearObjectPool();
+				assertEquals(message, json(objects), json(Serializer.readArray(new ByteArrayInputStream(out.toByteArray()), shape.getType())));
+			}
+		}
+	}
+	
+	@Test
+	public void emptyArrays() {
+		for (final int format : FORMATS) {
+			Serializer.setFormat(format);
+			assertEquals(0, Serializer.readArray(Serializer.arrayToBytes(new UniqueItem[0], UniqueItem.class), UniqueItem.class).length);
+			assertNull(Serializer.readArray(Serializer.arrayToBytes(new UniqueItem[] { null }, UniqueItem.class), UniqueItem.class)[0]);
+		}
+	}
+	
+	@Test
+	public void uniqueObjects() throws Exception {
+		final UniqueItem item = new UniqueItem();
+		item.id = 42;
+		item.title = "Заголовок";
+		item.genres = new int[] { 1, 2, 3 };
+		item.poster = new Image();
+		item.poster.url = "https://thumbs.example.com/42.jpg";
+		for (final int format : FORMATS) {
+			Serializer.setFormat(format);
+			final byte[] bytes = Serializer.toBytes(item, UniqueItem.class);
+			Serializer.clearObjectPool();
+			final UniqueItem read = Serializer.read(bytes, UniqueItem.class);
+			assertEquals(String.valueOf(format), json(item), json(read));
+			assertSame(String.valueOf(format), read, Serializer.read(bytes, UniqueItem.class));
+		}
+	}
+	
+	private static String json(final Object object) throws Exception {
+		return MAPPER.writeValueAsString(object);
+	}
+}
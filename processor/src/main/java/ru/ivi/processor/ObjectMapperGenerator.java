@@ -15,7 +15,11 @@ import java.util.Set;
 
 import javax.annotation.processing.ProcessingEnvironment;
 import javax.lang.model.element.Element;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.DeclaredType;
 import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
 
 
 public final class ObjectMapperGenerator {
@@ -40,19 +44,19 @@ public final class ObjectMapperGenerator {
 	}};
 	private static final Map<TypeKind, String> PARCEL_TYPE_KIND_TO_GET_METHOD = new EnumMap<TypeKind, String>(TypeKind.class) {{
 		put(TypeKind.BOOLEAN, "parcel.readByte() == (byte)1");
-		put(TypeKind.INT, "parcel.readInt()");
+		put(TypeKind.INT, "parcel.readCompactInt()");
 		put(TypeKind.DOUBLE, "parcel.readDouble()");
 		put(TypeKind.FLOAT, "parcel.readFloat()");
-		put(TypeKind.LONG, "parcel.readLong()");
+		put(TypeKind.LONG, "parcel.readCompactLong()");
 		put(TypeKind.BYTE, "parcel.readByte()");
 		put(TypeKind.DECLARED, "Serializer.read(parcel, ?.class)");
 	}};
 	private static final Map<TypeKind, String> PARCEL_TYPE_KIND_TO_WRITE_METHOD = new EnumMap<TypeKind, String>(TypeKind.class) {{
 		put(TypeKind.BOOLEAN, "parcel.writeByte(?+(byte)1:(byte)0)");
-		put(TypeKind.INT, "parcel.writeInt(?)");
+		put(TypeKind.INT, "parcel.writeCompactInt(?)");
 		put(TypeKind.DOUBLE, "parcel.writeDouble(?)");
 		put(TypeKind.FLOAT, "parcel.writeFloat(?)");
-		put(TypeKind.LONG, "parcel.writeLong(?)");
+		put(TypeKind.LONG, "parcel.writeCompactLong(?)");
 		put(TypeKind.BYTE, "parcel.writeByte(?)");
 		put(TypeKind.DECLARED, "Serializer.write(parcel, ?, _.class)");
 	}};
@@ -161,7 +165,8 @@ public final class ObjectMapperGenerator {
 			
 			for (final String className : dataClasses.keySet()) {
 				final Set<Element> fields = dataClasses.get(className);
-				final String fileName = generateObjectMap(className, fields, processingEnvironment);
+				final List<Element> sortedFields = getAllFields(className, dataClasses, processingEnvironment);
+				final String fileName = generateObjectMap(className, fields, sortedFields, processingEnvironment);
 				
 				objectMapFiles.put(className, fileName);
 			}
@@ -216,6 +221,7 @@ public final class ObjectMapperGenerator {
 			final Collection<String> imports3 = new HashSet<>();
 			imports3.add("ru.ivi.mapping.value.UniqueFieldsMap");
 			imports3.add("ru.ivi.mapping.value.UniqueKey");
+			imports3.add("ru.ivi.mapping.value.UniqueObjectKey");
 			
 			final StringBuilder builderUniqueFieldsMapFiller = new StringBuilder();
 			
@@ -223,8 +229,16 @@ public final class ObjectMapperGenerator {
 				.append("\t@Override\n")
 				.append("\tpublic void fill() {\n");
 			
+			final Map<Integer, String> classIds = new HashMap<>();
 			for (final String classWithUniqueFields : uniqueFields.keySet()) {
 				final List<Element> fields = uniqueFields.get(classWithUniqueFields);
+				// class id keeps keys of different classes with equal field values apart, like the class name in string keys
+				final int classId = classWithUniqueFields.hashCode();
+				final String sameIdClass = classIds.put(classId, classWithUniqueFields);
+				if (sameIdClass != null) {
+					processingEnvironment.getMessager().printMessage(Diagnostic.Kind.ERROR,
+						"unique key class id " + classId + " of " + classWithUniqueFields + " is the same as of " + sameIdClass + ", rename one of them");
+				}
 				
 				Collections.sort(fields, new Comparator<Element>() {
 					
@@ -234,15 +248,22 @@ public final class ObjectMapperGenerator {
 					}
 				});
 				
+				final String[] classNameSplit = classWithUniqueFields.split("\\.");
+				final String simpleClassName = classNameSplit[classNameSplit.length-1];
+				
 				final StringBuilder stringBuilder = new StringBuilder();
+				final StringBuilder keyBuilder = new StringBuilder()
+					.append("\t\t\t\tbuilder.add(").append(classId).append(");\n");
 				for (final Element element : fields) {
 					stringBuilder
 						.append("object.")
 						.append(element.getSimpleName())
 						.append("+");
+					keyBuilder
+						.append("\t\t\t\tbuilder.add(object.")
+						.append(element.getSimpleName())
+						.append(");\n");
 				}
-				final String[] classNameSplit = classWithUniqueFields.split("\\.");
-				final String simpleClassName = classNameSplit[classNameSplit.length-1];
 				stringBuilder
 					.append("\"")
 					.append(simpleClassName)
@@ -254,6 +275,11 @@ public final class ObjectMapperGenerator {
 					.append("\t\t\tpublic String getUniqueKey(final ").append(classWithUniqueFields).append(" object) {\n")
 					.append("\t\t\t\treturn ").append(stringBuilder.toString()).append(";\n")
 					.append("\t\t\t}\n")
+					.append("\t\t\t\n")
+					.append("\t\t\t@Override\n")
+					.append("\t\t\tpublic void fillKey(final ").append(classWithUniqueFields).append(" object, final UniqueObjectKey.Builder builder) {\n")
+					.append(keyBuilder)
+					.append("\t\t\t}\n")
 					.append("\t\t});\n");
 			}
 			
@@ -265,7 +291,196 @@ public final class ObjectMapperGenerator {
 		}
 	}
 	
-	private static String generateObjectMap(final String className, final Iterable<Element> fields, final ProcessingEnvironment processingEnvironment) {
+	/**
+	 * Fields of the class and of its super classes sorted by json key, the same set ObjectMap.getFields() has at runtime:
+	 * of fields with equal keys the one of the farthest super class is kept.
+	 */
+	private static List<Element> getAllFields(final String className, final Map<String, Set<Element>> dataClasses,
+		final ProcessingEnvironment processingEnvironment) {
+		final Map<String, Element> fieldsByKey = new HashMap<>();
+		for (final Element field : dataClasses.get(className)) {
+			fieldsByKey.put(getJsonKey(field), field);
+		}
+		
+		final TypeElement typeElement = processingEnvironment.getElementUtils().getTypeElement(className);
+		for (
+			TypeElement superElement = typeElement == null ? null : getSuperElement(typeElement);
+			superElement != null;
+			superElement = getSuperElement(superElement)
+			) {
+			final Set<Element> superFields = dataClasses.get(superElement.getQualifiedName().toString());
+			if (superFields != null) {
+				for (final Element field : superFields) {
+					fieldsByKey.put(getJsonKey(field), field);
+				}
+			}
+		}
+		
+		final List<String> keys = new ArrayList<>(fieldsByKey.keySet());
+		Collections.sort(keys);
+		final List<Element> allFields = new ArrayList<>(keys.size());
+		for (final String key : keys) {
+			allFields.add(fieldsByKey.get(key));
+		}
+		return allFields;
+	}
+	
+	private static TypeElement getSuperElement(final TypeElement typeElement) {
+		final TypeMirror superclass = typeElement.getSuperclass();
+		return superclass.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) superclass).asElement() : null;
+	}
+	
+	private static String getJsonKey(final Element field) {
+		final String valueKey = field.getAnnotation(Value.class).jsonKey();
+		return valueKey == null || valueKey.length() == 0 ? field.getSimpleName().toString() : valueKey;
+	}
+	
+	private static String getReadJsonCode(final Element field) {
+		final String fieldName = field.getSimpleName().toString();
+		return "obj." + fieldName + " = " + getGetJsonMethod(field)
+			.replace("?", ";if(obj." + fieldName + " != null) obj." + fieldName + " = obj." + fieldName + ".intern()")
+			+ ";";
+	}
+	
+	private static String getReadParcelCode(final Element field) {
+		final String fieldName = field.getSimpleName().toString();
+		return "obj." + fieldName + " = " + getGetParcelMethod(field)
+			.replace("?", ";if(obj." + fieldName + " != null) obj." + fieldName + " = obj." + fieldName + ".intern()")
+			+ ";";
+	}
+	
+	private static String getWriteParcelCode(final Element field) {
+		final String fieldName = field.getSimpleName().toString();
+		return getWriteParcel(field)
+			.replace("?", "obj." + fieldName)
+			.replace("%", "obj." + fieldName)
+			.replace("+","?")+";";
+	}
+	
+	private static String getEnclosingClassName(final Element field) {
+		return field.getEnclosingElement().asType().toString().replaceAll("<.*?>", "");
+	}
+	
+	/**
+	 * Switch over json keys of all fields: no map lookup and no IFieldInfo call per parsed field,
+	 * names from JsonParser are canonical strings with cached hash codes. Unknown names are rejected
+	 * without a map lookup unless the runtime map has fields the processor did not see.
+	 */
+	private static String generateReadJsonField(final Collection<Element> allFields) {
+		final StringBuilder builder = new StringBuilder()
+			.append("\t@Override\n")
+			.append("\tpublic boolean readJsonField(final Object object, final String name, final JsonParser json, final JsonNode sourceNode) throws IOException {\n")
+			.append("\t\tfinal JsonNode source = sourceNode == null ? null : sourceNode.get(name);\n")
+			.append("\t\tswitch (name) {\n");
+		
+		for (final Element field : allFields) {
+			final String className = getEnclosingClassName(field);
+			builder
+				.append("\t\t\tcase \"").append(getJsonKey(field)).append("\": {\n")
+				.append("\t\t\t\tfinal ").append(className).append(" obj = (").append(className).append(") object;\n")
+				.append("\t\t\t\t").append(getReadJsonCode(field)).append("\n")
+				.append("\t\t\t\treturn true;\n")
+				.append("\t\t\t}\n");
+		}
+		
+		builder
+			.append("\t\t\tdefault:\n")
+			.append("\t\t\t\treturn getSerializerFields().length != ").append(allFields.size())
+			.append(" && super.readJsonField(object, name, json, sourceNode);\n")
+			.append("\t\t}\n")
+			.append("\t}\n\n");
+		return builder.toString();
+	}
+	
+	/**
+	 * Null fields are not written, reading leaves them null anyway.
+	 */
+	private static String generateWriteJson(final Collection<Element> sortedFields) {
+		final StringBuilder builder = new StringBuilder()
+			.append("\t@Override\n")
+			.append("\tpublic void writeJson(final Object object, final JsonGenerator generator) throws IOException {\n")
+			.append("\t\tif (getSerializerFields().length != ").append(sortedFields.size()).append(") {\n")
+			.append("\t\t\tsuper.writeJson(object, generator);\n")
+			.append("\t\t\treturn;\n")
+			.append("\t\t}\n");
+		
+		for (final Element field : sortedFields) {
+			final String className = getEnclosingClassName(field);
+			builder
+				.append("\t\t{\n")
+				.append("\t\t\tfinal ").append(className).append(" obj = (").append(className).append(") object;\n")
+				.append("\t\t\t").append(getWriteJsonCode(field)).append("\n")
+				.append("\t\t}\n");
+		}
+		
+		builder.append("\t}\n\n");
+		return builder.toString();
+	}
+	
+	private static String getWriteJsonCode(final Element field) {
+		final String value = "obj." + field.getSimpleName();
+		final String key = "\"" + getJsonKey(field) + "\"";
+		final TypeKind typeKind = field.asType().getKind();
+		if (typeKind == TypeKind.BOOLEAN) {
+			return "generator.writeBooleanField(" + key + ", " + value + ");";
+		}
+		if (typeKind.isPrimitive()) {
+			return "generator.writeNumberField(" + key + ", " + value + ");";
+		}
+		
+		final String writeValue;
+		if (field.asType().toString().equals(java.lang.String.class.getName())) {
+			writeValue = "generator.writeString(" + value + ");";
+		} else if (field.getAnnotation(Value.class).fieldIsEnum()) {
+			writeValue = (typeKind == TypeKind.ARRAY ? "JacksonJsoner.writeEnumArray(generator, " : "JacksonJsoner.writeEnum(generator, ") + value + ");";
+		} else if (typeKind == TypeKind.ARRAY) {
+			writeValue = "JacksonJsoner.writeArray(generator, " + value + ");";
+		} else {
+			writeValue = "JacksonJsoner.writeValue(generator, " + value + ");";
+		}
+		return "if (" + value + " != null) { generator.writeFieldName(" + key + "); " + writeValue + " }";
+	}
+	
+	/**
+	 * Straight-line write and read of all fields in serialization order. The counts check falls back to IFieldInfo
+	 * calls when the runtime map also has fields of super classes that were not compiled with this class.
+	 */
+	private static String generateParcelFields(final Collection<Element> sortedFields) {
+		final StringBuilder writeBuilder = new StringBuilder()
+			.append("\t@Override\n")
+			.append("\tpublic void writeFields(final Object object, final Parcel parcel) {\n")
+			.append("\t\tif (getSerializerFields().length != ").append(sortedFields.size()).append(") {\n")
+			.append("\t\t\tsuper.writeFields(object, parcel);\n")
+			.append("\t\t\treturn;\n")
+			.append("\t\t}\n");
+		final StringBuilder readBuilder = new StringBuilder()
+			.append("\t@Override\n")
+			.append("\tpublic void readFields(final Object object, final ReadableParcel parcel) {\n")
+			.append("\t\tif (getSerializerFields().length != ").append(sortedFields.size()).append(") {\n")
+			.append("\t\t\tsuper.readFields(object, parcel);\n")
+			.append("\t\t\treturn;\n")
+			.append("\t\t}\n");
+		
+		for (final Element field : sortedFields) {
+			final String className = getEnclosingClassName(field);
+			final String cast = "\t\t{\n\t\t\tfinal " + className + " obj = (" + className + ") object;\n";
+			writeBuilder
+				.append(cast)
+				.append("\t\t\t").append(getWriteParcelCode(field)).append("\n")
+				.append("\t\t}\n");
+			readBuilder
+				.append(cast)
+				.append("\t\t\t").append(getReadParcelCode(field)).append("\n")
+				.append("\t\t}\n");
+		}
+		
+		writeBuilder.append("\t}\n\n");
+		readBuilder.append("\t}\n\n");
+		return writeBuilder.append(readBuilder).toString();
+	}
+	
+	private static String generateObjectMap(final String className, final Iterable<Element> fields, final Collection<Element> sortedFields,
+		final ProcessingEnvironment processingEnvironment) {
 		
 		final Collection<String> imports = new ArrayList<>();
 		imports.add(java.io.IOException.class.getName());
@@ -287,8 +502,10 @@ public final class ObjectMapperGenerator {
 		imports.add("java.util.Collection");
 		imports.add("java.util.Map");
 		imports.add("com.fasterxml.jackson.core.JsonParser");
+		imports.add("com.fasterxml.jackson.core.JsonGenerator");
 		imports.add("com.fasterxml.jackson.databind.JsonNode");
 		imports.add("ru.ivi.mapping.Parcel");
+		imports.add("ru.ivi.mapping.ReadableParcel");
 		
 		
 		final StringBuilder builder = new StringBuilder()
@@ -306,21 +523,14 @@ public final class ObjectMapperGenerator {
 			
 			final String fieldName = element.getSimpleName().toString();
 			final String fieldType = getFieldType(element);
-			final String className1 = element.getEnclosingElement().asType().toString().replaceAll("<.*?>", "");
+			final String className1 = getEnclosingClassName(element);
 			final String fieldInfoClassName = getFieldFieldInfoClassName(typeKind, className1, fieldType);
-			final String readJsonMethod = "obj." + fieldName + " = " + getGetJsonMethod(element)
-				.replace("?", ";if(obj." + fieldName + " != null) obj." + fieldName + " = obj." + fieldName + ".intern()")
-				+ ";";
-			final String readParcelMethod = "obj." + fieldName + " = " + getGetParcelMethod(element)
-				.replace("?", ";if(obj." + fieldName + " != null) obj." + fieldName + " = obj." + fieldName + ".intern()")
-				+ ";";
-			final String writeParcelMethod = getWriteParcel(element)
-				.replace("?", "obj." + fieldName)
-				.replace("%", "obj." + fieldName)
-				.replace("+","?")+";";
+			final String readJsonMethod = getReadJsonCode(element);
+			final String readParcelMethod = getReadParcelCode(element);
+			final String writeParcelMethod = getWriteParcelCode(element);
+			final String writeJsonMethod = getWriteJsonCode(element);
 			final String cloneMethod = "result." + fieldName + " = " + getCloneMethod(element) + ";";
-			final String valueKey = element.getAnnotation(Value.class).jsonKey();
-			final String jsonKey = valueKey == null || valueKey.length() == 0 ? fieldName : valueKey;
+			final String jsonKey = getJsonKey(element);
 			
 			final String addFieldCall = (String.format(Locale.getDefault(),
 				"\n\t\tmMap.put(\"%1$s\", %2$s{\n" +
@@ -331,7 +541,7 @@ public final class ObjectMapperGenerator {
 					"\t\t\t\t}\n" +
 					"\t\t\t\t\n" +
 					"\t\t\t\t@Override\n" +
-					"\t\t\t\tpublic void read(final %3$s obj, final Parcel parcel) {\n" +
+					"\t\t\t\tpublic void read(final %3$s obj, final ReadableParcel parcel) {\n" +
 					"\t\t\t\t\t\t%5$s\n" +
 					"\t\t\t\t}\n" +
 					"\t\t\t\t\n" +
@@ -339,6 +549,11 @@ public final class ObjectMapperGenerator {
 					"\t\t\t\tpublic void write(final %3$s obj, final Parcel parcel) {\n" +
 					"\t\t\t\t\t\t%6$s\n" +
 					"\t\t\t\t}\n" +
+					"\t\t\t\t\n" +
+					"\t\t\t\t@Override\n" +
+					"\t\t\t\tpublic void write(final %3$s obj, final JsonGenerator generator) throws IOException {\n" +
+					"\t\t\t\t\t\t%9$s\n" +
+					"\t\t\t\t}\n" +
 					"\t\t\t\t@Override\n" +
 					"\t\t\t\tpublic void clone(final %3$s result, final %3$s objToClone) {\n" +
 					"\t\t\t\t\t\t%7$s\n" +
@@ -348,7 +563,7 @@ public final class ObjectMapperGenerator {
 					"\t\t\t\t\t\treturn \"%8$s\";\n" +
 					"\t\t\t\t}\n" +
 					"\t\t});\n\n",
-				jsonKey, fieldInfoClassName, className1, readJsonMethod, readParcelMethod, writeParcelMethod, cloneMethod, className1+"."+jsonKey));
+				jsonKey, fieldInfoClassName, className1, readJsonMethod, readParcelMethod, writeParcelMethod, cloneMethod, className1+"."+jsonKey, writeJsonMethod));
 			
 			allFields.put(jsonKey, addFieldCall);
 			versions.put(jsonKey, fieldType);
@@ -365,6 +580,10 @@ public final class ObjectMapperGenerator {
 			.append("\t}\n");
 		builder
 			.append("\t@Override public int getCurrentVersion() { return ").append(versionBuilder.toString().hashCode()).append("; }\n\n ");
+		builder
+			.append(generateReadJsonField(sortedFields))
+			.append(generateParcelFields(sortedFields))
+			.append(generateWriteJson(sortedFields));
 		
 		final String[] packages = className.split("\\.");
 		final String fileName = packages[packages.length - 1] + ABSTRACT_FILE_NAME;
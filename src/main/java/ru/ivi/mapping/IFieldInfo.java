@@ -1,5 +1,6 @@
 package ru.ivi.mapping;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 
@@ -10,9 +11,14 @@ public interface IFieldInfo<Object> {
 	
 	void read(final Object obj, final JsonParser json, final JsonNode sourceNode) throws IOException;
 	
-	void read(final Object obj, final Parcel parcel);
+	void read(final Object obj, final ReadableParcel parcel);
 	
 	void write(final Object obj, final Parcel parcel);
 	
+	/**
+	 * Writes the json field with its name, null values are not written.
+	 */
+	void write(final Object obj, final JsonGenerator generator) throws IOException;
+	
 	void clone(final Object result, final Object objToClone);
 }
@@ -7,29 +7,43 @@ import android.text.TextUtils;
 import android.util.Pair;
 
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonLocation;
 import com.fasterxml.jackson.core.JsonParseException;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import org.json.JSONException;
+import org.json.JSONObject;
+
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
 
 import ru.ivi.mapping.value.IEnumTokensMap;
 import ru.ivi.mapping.value.IUniqueFieldsMap;
 import ru.ivi.mapping.value.IValueMap;
 import ru.ivi.mapping.value.ResponseData;
+import ru.ivi.mapping.value.StreamingResponseData;
 import ru.ivi.mapping.value.TokenizedEnum;
 import ru.ivi.mapping.value.UniqueObject;
 import ru.ivi.utils.ArrayUtils;
 import ru.ivi.utils.DateUtils;
+import ru.ivi.utils.DoubleArrayBuffer;
+import ru.ivi.utils.FloatArrayBuffer;
+import ru.ivi.utils.IntArrayBuffer;
+import ru.ivi.utils.LongArrayBuffer;
 import ru.ivi.utils.ParseUtils;
 import ru.ivi.utils.ReflectUtils;
 
@@ -38,7 +52,9 @@ import ru.ivi.utils.ReflectUtils;
 public final class JacksonJsoner {
 	
 	private static final ObjectMapper JACKSON_OBJECT_MAPPER = new ObjectMapper();
-	private static final JsonFactory JACKSON_JSON_FACTORY = new JsonFactory();
+	private static final JsonFactory JACKSON_JSON_FACTORY = new JsonFactory()
+		.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE)
+		.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
 	
 	private static IValueMap sValueMap = null;
 	private static IEnumTokensMap sEnumTokensMap = null;
@@ -56,6 +72,13 @@ public final class JacksonJsoner {
 	private static final double DEFAULT_DOUBLE_VALUE = 0D;
 	private static final boolean DEFAULT_BOOLEAN_VALUE = false;
 	
+	static final Object NOT_ELEMENT = new Object();
+	
+	private static volatile boolean sCountSkipped = false;
+	private static final AtomicLong SKIPPED_VALUES_COUNT = new AtomicLong();
+	private static final AtomicLong SKIPPED_LENGTH = new AtomicLong();
+	private static final ConcurrentHashMap<String, AtomicLong> SKIPPED_FIELDS = new ConcurrentHashMap<>();
+	
 	private static final Collection<Class<?>> PRIMITIVE_WRAPPER_CLASSES = new HashSet<Class<?>>() {{
 		add(Boolean.class);
 		add(Integer.class);
@@ -185,53 +208,34 @@ public final class JacksonJsoner {
 		final Pair<Result, Error> resultErrorPair;
 		
 		if (responseData != null && responseData.getData() != null) {
-			final Result result;
-			final JsonNode jsonNode = JACKSON_OBJECT_MAPPER.readTree(responseData.getData());
+			Result result = null;
+			Error error = null;
 			
-			if (jsonNode.hasNonNull(JacksonJsoner.RESULT)) {
-				final JsonNode resultNode = jsonNode.get(JacksonJsoner.RESULT);
-				if (resultClass == String.class) {
-					//noinspection unchecked
-					result = (Result) resultNode.asText();
-				} else {
-					JsonParser parser = null;
-					try {
-						parser = resultNode.traverse();
-						if (PRIMITIVE_WRAPPER_CLASSES.contains(resultClass)) {
-							result = readPrimitive(resultClass, parser);
-						} else {
-							result = readObject(parser, resultNode, resultClass);
+			final JsonParser parser = JACKSON_JSON_FACTORY.createParser(responseData.getData());
+			try {
+				if (parser.nextToken() == JsonToken.START_OBJECT) {
+					for (JsonToken token = parser.nextToken(); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+						final String fieldName = parser.getCurrentName();
+						//noinspection AssignmentToForLoopParameter
+						token = parser.nextToken();
+						
+						if (token == JsonToken.VALUE_NULL) {
+							continue;
 						}
-					} finally {
-						if (parser != null) {
-							parser.close();
+						if (RESULT.equals(fieldName)) {
+							result = readResultValue(parser, resultClass);
+						} else if (ERROR.equals(fieldName) && result == null) {
+							error = readObject(parser, null, errorClass);
+						} else {
+							skipValue(parser, ResponseData.class, fieldName);
 						}
 					}
 				}
-			} else {
-				result = null;
+			} finally {
+				parser.close();
 			}
 			
-			if (result == null) {
-				final Error error;
-				if (jsonNode.hasNonNull(ERROR)) {
-					final JsonNode resultNode = jsonNode.get(ERROR);
-					JsonParser parser = null;
-					try {
-						parser = resultNode.traverse();
-						error = readObject(parser, resultNode, errorClass);
-					} finally {
-						if (parser != null) {
-							parser.close();
-						}
-					}
-				} else {
-					error = null;
-				}
-				resultErrorPair = new Pair<>(result, error);
-			} else {
-				resultErrorPair = new Pair<>(result, null);
-			}
+			resultErrorPair = new Pair<>(result, result == null ? error : null);
 		} else {
 			resultErrorPair = new Pair<>(null, null);
 		}
@@ -249,48 +253,34 @@ public final class JacksonJsoner {
 		final Pair<Result[], Error> resultErrorPair;
 		
 		if (responseData != null && responseData.getData() != null) {
-			final JsonNode jsonNode = JACKSON_OBJECT_MAPPER.readTree(responseData.getData());
+			Result[] result = null;
+			Error error = null;
 			
-			final Result[] result;
-			if (jsonNode.hasNonNull(RESULT)) {
-				final JsonNode resultNode = jsonNode.get(RESULT);
-				JsonParser parser = null;
-				try {
-					//noinspection resource
-					parser = resultNode.traverse();
-					
-					result = ArrayUtils.toArray(readArray(parser, resultNode, resultClass), resultClass);
-				} finally {
-					if (parser != null) {
-						parser.close();
-					}
-				}
-			} else {
-				result = null;
-			}
-			
-			if (result == null) {
-				final Error error;
-				if (jsonNode.hasNonNull(ERROR)) {
-					final JsonNode resultNode = jsonNode.get(ERROR);
-					JsonParser parser = null;
-					try {
-						parser = resultNode.traverse();
-						error = readObject(parser, resultNode, errorClass);
-					} finally {
-						if (parser != null) {
-							parser.close();
+			final JsonParser parser = JACKSON_JSON_FACTORY.createParser(responseData.getData());
+			try {
+				if (parser.nextToken() == JsonToken.START_OBJECT) {
+					for (JsonToken token = parser.nextToken(); token == JsonToken.FIELD_NAME; token = parser.nextToken()) {
+						final String fieldName = parser.getCurrentName();
+						//noinspection AssignmentToForLoopParameter
+						token = parser.nextToken();
+						
+						if (token == JsonToken.VALUE_NULL) {
+							continue;
+						}
+						if (RESULT.equals(fieldName)) {
+							result = ArrayUtils.toArray(readArray(parser, null, resultClass), resultClass);
+						} else if (ERROR.equals(fieldName) && result == null) {
+							error = readObject(parser, null, errorClass);
+						} else {
+							skipValue(parser, ResponseData.class, fieldName);
 						}
 					}
-					
-				} else {
-					error = null;
 				}
-				resultErrorPair = new Pair<>(null, error);
-			} else {
-				
-				resultErrorPair = new Pair<>(result, null);
+			} finally {
+				parser.close();
 			}
+			
+			resultErrorPair = new Pair<>(result, result == null ? error : null);
 		} else {
 			resultErrorPair = new Pair<>(null, null);
 		}
@@ -298,48 +288,74 @@ public final class JacksonJsoner {
 		return resultErrorPair;
 	}
 	
+	/**
+	 * Same as reading the value from its JsonNode: String results are the text of scalars and empty for objects and arrays.
+	 */
+	private static <Result> Result readResultValue(final JsonParser parser, final Class<Result> resultClass) throws IOException {
+		if (resultClass == String.class) {
+			final JsonToken token = parser.getCurrentToken();
+			final String text = token.isScalarValue() ? parser.getText() : "";
+			parser.skipChildren();
+			//noinspection unchecked
+			return (Result) text;
+		} else if (PRIMITIVE_WRAPPER_CLASSES.contains(resultClass)) {
+			return readPrimitive(resultClass, parser);
+		} else {
+			return readObject(parser, null, resultClass);
+		}
+	}
+	
 	public static <T> T read(@Nullable final ResponseData responseData, final Class<T> type) throws IOException {
 		if (responseData == null || responseData.getData() == null) {
 			return null;
 		}
 		
-		T result;
-		JsonParser parser = null;
-		try {
-			final JsonNode jsonNode = JACKSON_OBJECT_MAPPER.readTree(responseData.getData());
-			//noinspection resource
-			parser = jsonNode.traverse();
-			
-			result = readObject(parser, jsonNode, type);
-		} finally {
-			if (parser != null) {
-				parser.close();
-			}
+		return readAndClose(JACKSON_JSON_FACTORY.createParser(responseData.getData()), type);
+	}
+	
+	public static <T> T read(final String jsonStr, final Class<T> type) throws IOException {
+		if (TextUtils.isEmpty(jsonStr)) {
+			return null;
 		}
 		
+		return readAndClose(JACKSON_JSON_FACTORY.createParser(jsonStr), type);
+	}
+	
+	/**
+	 * Parses utf-8 bytes as is, without decoding them to a String first.
+	 */
+	public static <T> T read(final byte[] data, final int offset, final int length, final Class<T> type) throws IOException {
+		if (data == null || length == 0) {
+			return null;
+		}
 		
-		return result;
+		return readAndClose(JACKSON_JSON_FACTORY.createParser(data, offset, length), type);
 	}
 	
-	public static <T> T read(final String jsonStr, final Class<T> type) throws IOException {
-		if (TextUtils.isEmpty(jsonStr)) {
+	/**
+	 * Parses while the stream is read, without buffering the whole response. The stream is not closed.
+	 */
+	public static <T> T read(final InputStream inputStream, final Class<T> type) throws IOException {
+		if (inputStream == null) {
 			return null;
 		}
 		
-		T result = null;
-		final JsonNode jsonNode = JACKSON_OBJECT_MAPPER.readTree(jsonStr);
-		JsonParser parser = null;
+		return readAndClose(JACKSON_JSON_FACTORY.createParser(inputStream), type);
+	}
+	
+	/**
+	 * Parses while the body is downloaded. The stream is left open, close the response data after.
+	 */
+	public static <T> T read(@Nullable final StreamingResponseData responseData, final Class<T> type) throws IOException {
+		return responseData == null ? null : read(responseData.getInputStream(), type);
+	}
+	
+	private static <T> T readAndClose(final JsonParser parser, final Class<T> type) throws IOException {
 		try {
-			parser = jsonNode.traverse();
-			
-			result = readObject(parser, jsonNode, type);
+			return parser.nextToken() == null ? null : readObject(parser, null, type);
 		} finally {
-			if (parser != null) {
-				parser.close();
-			}
+			parser.close();
 		}
-		
-		return result;
 	}
 	
 	public static <T> T readObject(final JsonParser parser, final JsonNode sourceNode, final Class<T> classType) throws IOException {
@@ -358,6 +374,10 @@ public final class JacksonJsoner {
 			return readEnum(valueAsString, classType);
 		}
 		
+		if (sourceNode == null && CustomJsonable.class.isAssignableFrom(classType) && parser.getCurrentToken() == JsonToken.START_OBJECT) {
+			return readCustomJsonable(parser, classType);
+		}
+		
 		final ObjectMap<String, IFieldInfo> objectMap = sValueMap.getObjectMap(classType);
 		
 		final T result;
@@ -379,14 +399,8 @@ public final class JacksonJsoner {
 					//noinspection AssignmentToForLoopParameter
 					token = parser.nextToken();
 					
-					final IFieldInfo fieldInfo = fieldInfoMap.get(fieldName);
-					if (fieldInfo != null) {
-						//noinspection unchecked
-						fieldInfo.read(result, parser, sourceNode == null ? null : sourceNode.get(fieldName));
-					} else if (token == JsonToken.START_OBJECT) {
-						skipObjectField(parser);
-					} else if (token == JsonToken.START_ARRAY) {
-						skipArrayField(parser);
+					if (!objectMap.readJsonField(result, fieldName, parser, sourceNode)) {
+						skipValue(parser, classType, fieldName);
 					}
 				}
 			}
@@ -401,108 +415,155 @@ public final class JacksonJsoner {
 		}
 		
 		if (result instanceof UniqueObject) {
-			final String uniqueKeyName = sUniqueFieldsMap.getUniqueKey(result, classType);
-			if (!TextUtils.isEmpty(uniqueKeyName)) {
-				Serializer.UNIQUE_OBJECTS_POOL.put(uniqueKeyName, result);
+			final Object uniqueKey = Serializer.getPoolKey(sUniqueFieldsMap, result, classType, Serializer.getFormat());
+			if (uniqueKey != null) {
+				Serializer.getUniqueObjectsPool().put(uniqueKey, result);
 			}
 		}
 		
 		if (fieldInfoMap == null || fieldInfoMap.isEmpty()) {
-			if (parser.getCurrentToken() == JsonToken.START_OBJECT) {
-				skipObjectField(parser);
-			} else if (parser.getCurrentToken() == JsonToken.START_ARRAY) {
-				skipArrayField(parser);
-			}
+			skipValue(parser, classType, null);
 		}
 		
 		return result;
 	}
 	
+	/**
+	 * Streaming parsers have no tree for {@link CustomJsonable#read}, so only the subtree of such object is buffered.
+	 */
+	private static <T> T readCustomJsonable(final JsonParser parser, final Class<T> classType) throws IOException {
+		final JsonNode subtree = JACKSON_OBJECT_MAPPER.readTree(parser);
+		final JsonParser subtreeParser = subtree.traverse();
+		try {
+			return readObject(subtreeParser, subtree, classType);
+		} finally {
+			subtreeParser.close();
+		}
+	}
+	
 	private static void moveToToken(final JsonParser parser) throws IOException {
 		if (parser.getCurrentToken() == null) {
 			parser.nextToken();
 		}
 	}
 	
-	private static void skipObjectField(final JsonParser parser) throws IOException {
-		moveToToken(parser);
+	/**
+	 * Skips the value the parser is on, objects and arrays without visiting their tokens one by one.
+	 */
+	private static void skipValue(final JsonParser parser, final Class<?> classType, final String fieldName) throws IOException {
+		if (!sCountSkipped) {
+			parser.skipChildren();
+			return;
+		}
 		
-		int started = 0;
-		int ended = 0;
-		for (
-			JsonToken token = parser.nextToken();
-			token != null && (token != JsonToken.END_OBJECT || started > 0 && started != ended);
-			token = parser.nextToken()
-			) {
-			if (token == JsonToken.START_OBJECT) {
-				started++;
-			} else if (token == JsonToken.END_OBJECT) {
-				ended++;
+		final long start = offsetOf(parser.getTokenLocation());
+		parser.skipChildren();
+		final long length = Math.max(0, offsetOf(parser.getCurrentLocation()) - start);
+		
+		SKIPPED_VALUES_COUNT.incrementAndGet();
+		SKIPPED_LENGTH.addAndGet(length);
+		
+		final String key = fieldName == null ? classType.getName() : classType.getName() + '.' + fieldName;
+		AtomicLong fieldLength = SKIPPED_FIELDS.get(key);
+		if (fieldLength == null) {
+			final AtomicLong newFieldLength = new AtomicLong();
+			fieldLength = SKIPPED_FIELDS.putIfAbsent(key, newFieldLength);
+			if (fieldLength == null) {
+				fieldLength = newFieldLength;
 			}
 		}
+		fieldLength.addAndGet(length);
 	}
 	
-	private static void skipArrayField(final JsonParser parser) throws IOException {
-		moveToToken(parser);
-		
-		int started = 0;
-		int ended = 0;
-		for (
-			JsonToken token = parser.nextToken();
-			token != null && (token != JsonToken.END_ARRAY || started > 0 && started != ended);
-			token = parser.nextToken()
-			) {
-			if (token == JsonToken.START_ARRAY) {
-				started++;
-			} else if (token == JsonToken.END_ARRAY) {
-				ended++;
-			}
+	/**
+	 * Byte offset for byte and stream sources, char offset for strings, -1 for trees.
+	 */
+	private static long offsetOf(final JsonLocation location) {
+		final long byteOffset = location.getByteOffset();
+		return byteOffset >= 0 ? byteOffset : location.getCharOffset();
+	}
+	
+	/**
+	 * Counts json values skipped by {@link #readObject} because models have no fields for them, to find data
+	 * that is downloaded but never mapped. Counting costs a location lookup per skipped value, so it is off by default.
+	 */
+	public static void setCountSkipped(final boolean countSkipped) {
+		sCountSkipped = countSkipped;
+	}
+	
+	public static long getSkippedValuesCount() {
+		return SKIPPED_VALUES_COUNT.get();
+	}
+	
+	/**
+	 * Length of skipped values in bytes, or in chars for json parsed from strings.
+	 */
+	public static long getSkippedLength() {
+		return SKIPPED_LENGTH.get();
+	}
+	
+	/**
+	 * @return skipped length by "class.field" keys, by class name for objects of classes without fields
+	 */
+	public static Map<String, Long> getSkippedFields() {
+		final Map<String, Long> skippedFields = new HashMap<>();
+		for (final Map.Entry<String, AtomicLong> entry : SKIPPED_FIELDS.entrySet()) {
+			skippedFields.put(entry.getKey(), entry.getValue().get());
 		}
+		return skippedFields;
+	}
+	
+	public static void resetSkipped() {
+		SKIPPED_VALUES_COUNT.set(0);
+		SKIPPED_LENGTH.set(0);
+		SKIPPED_FIELDS.clear();
 	}
 	
 	public static <T> T[] readArray(final String jsonStr, final Class<T> classType) throws IOException {
-		final T[] result;
-		final JsonParser parser;
-		
-		if (!TextUtils.isEmpty(jsonStr)) {
-			final JsonNode jsonNode = JACKSON_OBJECT_MAPPER.readTree(jsonStr);
-			
-			//noinspection resource
-			parser = jsonNode.traverse();
-			
-			result = ArrayUtils.toArray(readArray(parser, jsonNode, classType), classType);
-		} else {
-			parser = null;
-			result = null;
+		if (TextUtils.isEmpty(jsonStr)) {
+			return null;
 		}
 		
-		if (parser != null) {
-			parser.close();
+		return readArrayAndClose(JACKSON_JSON_FACTORY.createParser(jsonStr), classType);
+	}
+	
+	public static <T> T[] readArray(@Nullable final ResponseData responseData, final Class<T> type) throws IOException {
+		if (responseData == null || responseData.getData() == null) {
+			return null;
 		}
 		
-		return result;
+		return readArrayAndClose(JACKSON_JSON_FACTORY.createParser(responseData.getData()), type);
 	}
 	
+	public static <T> T[] readArray(final byte[] data, final int offset, final int length, final Class<T> type) throws IOException {
+		if (data == null || length == 0) {
+			return null;
+		}
+		
+		return readArrayAndClose(JACKSON_JSON_FACTORY.createParser(data, offset, length), type);
+	}
 	
-	public static <T> T[] readArray(@Nullable final ResponseData responseData, final Class<T> type) throws IOException {
-		if (responseData == null || responseData.getData() == null) {
+	/**
+	 * The stream is not closed.
+	 */
+	public static <T> T[] readArray(final InputStream inputStream, final Class<T> type) throws IOException {
+		if (inputStream == null) {
 			return null;
 		}
 		
-		T[] result = null;
-		JsonParser parser = null;
+		return readArrayAndClose(JACKSON_JSON_FACTORY.createParser(inputStream), type);
+	}
+	
+	public static <T> T[] readArray(@Nullable final StreamingResponseData responseData, final Class<T> type) throws IOException {
+		return responseData == null ? null : readArray(responseData.getInputStream(), type);
+	}
+	
+	private static <T> T[] readArrayAndClose(final JsonParser parser, final Class<T> type) throws IOException {
 		try {
-			final JsonNode jsonNode = JACKSON_OBJECT_MAPPER.readTree(responseData.getData());
-			//noinspection resource
-			parser = jsonNode.traverse();
-			result = ArrayUtils.toArray(readArray(parser, jsonNode, type), type);
+			return parser.nextToken() == null ? null : ArrayUtils.toArray(readArray(parser, null, type), type);
 		} finally {
-			if (parser != null) {
-				parser.close();
-			}
+			parser.close();
 		}
-		
-		return result;
 	}
 	
 	@SuppressWarnings({ "unchecked", "TypeMayBeWeakened" })
@@ -518,16 +579,9 @@ public final class JacksonJsoner {
 				token != null && token != JsonToken.END_ARRAY;
 				token = parser.nextToken()
 				) {
-				if (token == JsonToken.VALUE_STRING) {
-					if (classType == String.class) {
-						result.add((T) parser.getValueAsString());
-					}
-				} else if (token == JsonToken.VALUE_NUMBER_INT) {
-					if (classType == Integer.class) {
-						result.add((T) parser.getNumberValue());
-					}
-				} else if (token == JsonToken.START_OBJECT) {
-					result.add(readObject(parser, sourceNode == null ? null : sourceNode.get(result.size()), classType));
+				final Object element = readArrayElement(parser, token, sourceNode == null ? null : sourceNode.get(result.size()), classType);
+				if (element != NOT_ELEMENT) {
+					result.add((T) element);
 				}
 				if (isOneObjectArray) {
 					break;
@@ -538,6 +592,37 @@ public final class JacksonJsoner {
 		return result;
 	}
 	
+	/**
+	 * @return element of an array of classType on the token, {@link #NOT_ELEMENT} for tokens that are skipped
+	 */
+	static Object readArrayElement(final JsonParser parser, final JsonToken token, final JsonNode sourceNode, final Class<?> classType) throws IOException {
+		if (token == JsonToken.VALUE_STRING) {
+			return classType == String.class ? parser.getValueAsString() : NOT_ELEMENT;
+		} else if (token == JsonToken.VALUE_NUMBER_INT) {
+			return classType == Integer.class ? parser.getNumberValue() : NOT_ELEMENT;
+		} else if (token == JsonToken.START_OBJECT) {
+			return readObject(parser, sourceNode, classType);
+		}
+		return NOT_ELEMENT;
+	}
+	
+	/**
+	 * Decodes elements of a json array one by one while the stream is read, so huge arrays need constant memory.
+	 * The iterator must be closed if it is not read to the end, the stream itself is not closed.
+	 */
+	public static <T> JsonArrayIterator<T> iterateArray(final InputStream inputStream, final Class<T> type) throws IOException {
+		final JsonParser parser = JACKSON_JSON_FACTORY.createParser(inputStream);
+		try {
+			return new JsonArrayIterator<>(parser, type);
+		} catch (final Throwable e) {
+			try {
+				parser.close();
+			} catch (final IOException ignore) {
+			}
+			throw e;
+		}
+	}
+	
 	public static <E extends Enum<E>> E[] readEnumArray(final JsonParser parser, final Class<E> classType) throws IOException {
 		moveToToken(parser);
 		final boolean isOneObjectArray = parser.getCurrentToken() != JsonToken.START_ARRAY;
@@ -572,7 +657,7 @@ public final class JacksonJsoner {
 		final boolean isOneObjectArray = parser.getCurrentToken() != JsonToken.START_ARRAY;
 		
 		if (parser.getCurrentToken() != JsonToken.VALUE_NULL) {
-			final List<Integer> result = new ArrayList<>();
+			final IntArrayBuffer result = new IntArrayBuffer();
 			
 			for (
 				JsonToken token = parser.getCurrentToken();
@@ -587,7 +672,7 @@ public final class JacksonJsoner {
 				}
 			}
 			
-			return ArrayUtils.toPrimitive(result);
+			return result.toArray();
 		} else {
 			return ArrayUtils.EMPTY_INT_ARRAY;
 		}
@@ -598,7 +683,7 @@ public final class JacksonJsoner {
 		final boolean isOneObjectArray = parser.getCurrentToken() != JsonToken.START_ARRAY;
 		
 		if (parser.getCurrentToken() != JsonToken.VALUE_NULL) {
-			final List<Byte> result = new ArrayList<>();
+			final IntArrayBuffer result = new IntArrayBuffer();
 			
 			for (
 				JsonToken token = parser.getCurrentToken();
@@ -613,7 +698,7 @@ public final class JacksonJsoner {
 				}
 			}
 			
-			return ArrayUtils.toPrimitiveByte(result);
+			return result.toByteArray();
 		} else {
 			return ArrayUtils.EMPTY_BYTE_ARRAY;
 		}
@@ -624,7 +709,7 @@ public final class JacksonJsoner {
 		final boolean isOneObjectArray = parser.getCurrentToken() != JsonToken.START_ARRAY;
 		
 		if (parser.getCurrentToken() != JsonToken.VALUE_NULL) {
-			final List<Integer> result = new ArrayList<>();
+			final IntArrayBuffer result = new IntArrayBuffer();
 			
 			for (
 				JsonToken token = parser.getCurrentToken();
@@ -639,7 +724,7 @@ public final class JacksonJsoner {
 				}
 			}
 			
-			return ArrayUtils.toPrimitiveChar(result);
+			return result.toCharArray();
 		} else {
 			return ArrayUtils.EMPTY_CHAR_ARRAY;
 		}
@@ -658,7 +743,7 @@ public final class JacksonJsoner {
 		final boolean isOneObjectArray = parser.getCurrentToken() != JsonToken.START_ARRAY;
 		
 		if (parser.getCurrentToken() != JsonToken.VALUE_NULL) {
-			final List<Long> result = new ArrayList<>();
+			final LongArrayBuffer result = new LongArrayBuffer();
 			
 			for (
 				JsonToken token = parser.getCurrentToken();
@@ -673,7 +758,7 @@ public final class JacksonJsoner {
 				}
 			}
 			
-			return ArrayUtils.toPrimitive(result.toArray(new Long[result.size()]));
+			return result.toArray();
 		} else {
 			return ArrayUtils.EMPTY_LONG_ARRAY;
 		}
@@ -692,7 +777,7 @@ public final class JacksonJsoner {
 		final boolean isOneObjectArray = parser.getCurrentToken() != JsonToken.START_ARRAY;
 		
 		if (parser.getCurrentToken() != JsonToken.VALUE_NULL) {
-			final List<Float> result = new ArrayList<>();
+			final FloatArrayBuffer result = new FloatArrayBuffer();
 			
 			for (
 				JsonToken token = parser.getCurrentToken();
@@ -707,7 +792,7 @@ public final class JacksonJsoner {
 				}
 			}
 			
-			return ArrayUtils.toPrimitive(result.toArray(new Float[result.size()]));
+			return result.toArray();
 		} else {
 			return ArrayUtils.EMPTY_FLOAT_ARRAY;
 		}
@@ -727,7 +812,7 @@ public final class JacksonJsoner {
 		final boolean isOneObjectArray = parser.getCurrentToken() != JsonToken.START_ARRAY;
 		
 		if (parser.getCurrentToken() != JsonToken.VALUE_NULL) {
-			final List<Double> result = new ArrayList<>();
+			final DoubleArrayBuffer result = new DoubleArrayBuffer();
 			
 			for (
 				JsonToken token = parser.getCurrentToken();
@@ -742,7 +827,7 @@ public final class JacksonJsoner {
 				}
 			}
 			
-			return ArrayUtils.toPrimitive(result.toArray(new Double[result.size()]));
+			return result.toArray();
 		} else {
 			return ArrayUtils.EMPTY_DOUBLE_ARRAY;
 		}
@@ -762,7 +847,7 @@ public final class JacksonJsoner {
 		final boolean isOneObjectArray = parser.getCurrentToken() != JsonToken.START_ARRAY;
 		
 		if (parser.getCurrentToken() != JsonToken.VALUE_NULL) {
-			final List<Boolean> result = new ArrayList<>();
+			final IntArrayBuffer result = new IntArrayBuffer();
 			
 			for (
 				JsonToken token = parser.getCurrentToken();
@@ -770,18 +855,18 @@ public final class JacksonJsoner {
 				token = parser.nextToken()
 				) {
 				if (token == JsonToken.VALUE_FALSE) {
-					result.add(Boolean.FALSE);
+					result.add(0);
 				} else if (token == JsonToken.VALUE_TRUE) {
-					result.add(Boolean.TRUE);
+					result.add(1);
 				} else if (token == JsonToken.VALUE_NUMBER_INT) {
-					result.add(tryParseBoolean(parser));
+					result.add(tryParseBoolean(parser) ? 1 : 0);
 				}
 				if (isOneObjectArray) {
 					break;
 				}
 			}
 			
-			return ArrayUtils.toPrimitive(result.toArray(new Boolean[result.size()]));
+			return result.toBooleanArray();
 		} else {
 			return ArrayUtils.EMPTY_BOOLEAN_ARRAY;
 		}
@@ -867,7 +952,7 @@ public final class JacksonJsoner {
 		}
 	}
 	
-	private static double tryParseDouble(final JsonParser parser) throws IOException {
+	public static double tryParseDouble(final JsonParser parser) throws IOException {
 		try {
 			return parser.getDoubleValue();
 		} catch (final JsonParseException exception) {
@@ -894,6 +979,176 @@ public final class JacksonJsoner {
 		}
 	}
 	
+	/**
+	 * Writes the object as utf-8 json readable by {@link #read(InputStream, Class)}, with fields written by generated code.
+	 * The stream is not closed.
+	 */
+	public static void write(final Object object, final OutputStream outputStream) throws IOException {
+		final JsonGenerator generator = JACKSON_JSON_FACTORY.createGenerator(outputStream);
+		try {
+			writeValue(generator, object);
+		} finally {
+			generator.close();
+		}
+	}
+	
+	public static void write(final Object object, final JsonGenerator generator) throws IOException {
+		writeValue(generator, object);
+	}
+	
+	public static void writeValue(final JsonGenerator generator, final Object value) throws IOException {
+		if (value == null) {
+			generator.writeNull();
+		} else if (value instanceof String) {
+			generator.writeString((String) value);
+		} else if (value instanceof Integer || value instanceof Long || value instanceof Byte || value instanceof Short) {
+			generator.writeNumber(((Number) value).longValue());
+		} else if (value instanceof Float) {
+			generator.writeNumber((Float) value);
+		} else if (value instanceof Number) {
+			generator.writeNumber(((Number) value).doubleValue());
+		} else if (value instanceof Boolean) {
+			generator.writeBoolean((Boolean) value);
+		} else if (value instanceof Enum) {
+			writeEnum(generator, (Enum<?>) value);
+		} else if (value instanceof Object[]) {
+			writeArray(generator, (Object[]) value);
+		} else if (value instanceof int[]) {
+			writeArray(generator, (int[]) value);
+		} else if (value instanceof long[]) {
+			writeArray(generator, (long[]) value);
+		} else if (value instanceof double[]) {
+			writeArray(generator, (double[]) value);
+		} else if (value instanceof float[]) {
+			writeArray(generator, (float[]) value);
+		} else if (value instanceof boolean[]) {
+			writeArray(generator, (boolean[]) value);
+		} else if (value instanceof byte[]) {
+			writeArray(generator, (byte[]) value);
+		} else if (value instanceof char[]) {
+			writeArray(generator, (char[]) value);
+		} else {
+			writeObject(generator, value);
+		}
+	}
+	
+	/**
+	 * @throws IOException for classes without generated object map which are not {@link CustomJsonable}, instead of writing {@code {}}
+	 */
+	private static void writeObject(final JsonGenerator generator, final Object object) throws IOException {
+		final ObjectMap<String, IFieldInfo> objectMap = sValueMap.getObjectMap(object.getClass());
+		if (objectMap == null && !(object instanceof CustomJsonable)) {
+			throw new IOException("no object map to write json of " + object.getClass().getName());
+		}
+		
+		generator.writeStartObject();
+		if (objectMap != null) {
+			objectMap.writeJson(object, generator);
+		}
+		if (object instanceof CustomJsonable) {
+			writeCustomJsonable(generator, (CustomJsonable) object);
+		}
+		generator.writeEndObject();
+	}
+	
+	/**
+	 * Custom fields are written to a JSONObject by {@link CustomJsonable#write} and copied from it.
+	 */
+	private static void writeCustomJsonable(final JsonGenerator generator, final CustomJsonable object) throws IOException {
+		final JSONObject json = new JSONObject();
+		try {
+			object.write(new JsonableWriter(json, true));
+		} catch (final JSONException e) {
+			throw new IOException(e);
+		}
+		
+		if (json.length() > 0) {
+			final JsonParser parser = JACKSON_JSON_FACTORY.createParser(json.toString());
+			try {
+				parser.nextToken();
+				while (parser.nextToken() == JsonToken.FIELD_NAME) {
+					generator.copyCurrentStructure(parser);
+				}
+			} finally {
+				parser.close();
+			}
+		}
+	}
+	
+	/**
+	 * Writes the token of {@link TokenizedEnum}s, the name of other enums, as {@link #readEnum} expects.
+	 */
+	public static void writeEnum(final JsonGenerator generator, final Enum<?> value) throws IOException {
+		if (value == null) {
+			generator.writeNull();
+		} else {
+			generator.writeString(value instanceof TokenizedEnum ? ((TokenizedEnum<?>) value).getToken() : value.name());
+		}
+	}
+	
+	public static void writeEnumArray(final JsonGenerator generator, final Enum<?>[] values) throws IOException {
+		generator.writeStartArray();
+		for (final Enum<?> value : values) {
+			writeEnum(generator, value);
+		}
+		generator.writeEndArray();
+	}
+	
+	public static void writeArray(final JsonGenerator generator, final Object[] values) throws IOException {
+		generator.writeStartArray();
+		for (final Object value : values) {
+			writeValue(generator, value);
+		}
+		generator.writeEndArray();
+	}
+	
+	public static void writeArray(final JsonGenerator generator, final int[] values) throws IOException {
+		generator.writeArray(values, 0, values.length);
+	}
+	
+	public static void writeArray(final JsonGenerator generator, final long[] values) throws IOException {
+		generator.writeArray(values, 0, values.length);
+	}
+	
+	public static void writeArray(final JsonGenerator generator, final double[] values) throws IOException {
+		generator.writeArray(values, 0, values.length);
+	}
+	
+	public static void writeArray(final JsonGenerator generator, final float[] values) throws IOException {
+		generator.writeStartArray();
+		for (final float value : values) {
+			generator.writeNumber(value);
+		}
+		generator.writeEndArray();
+	}
+	
+	public static void writeArray(final JsonGenerator generator, final boolean[] values) throws IOException {
+		generator.writeStartArray();
+		for (final boolean value : values) {
+			generator.writeBoolean(value);
+		}
+		generator.writeEndArray();
+	}
+	
+	/**
+	 * Bytes are written as numbers, not base64, {@link #readByteArray(JsonParser)} reads them back.
+	 */
+	public static void writeArray(final JsonGenerator generator, final byte[] values) throws IOException {
+		generator.writeStartArray();
+		for (final byte value : values) {
+			generator.writeNumber(value);
+		}
+		generator.writeEndArray();
+	}
+	
+	public static void writeArray(final JsonGenerator generator, final char[] values) throws IOException {
+		generator.writeStartArray();
+		for (final char value : values) {
+			generator.writeNumber(value);
+		}
+		generator.writeEndArray();
+	}
+	
 	public static long tryParseTimeStamp(final String time) {
 		final Date date = time != null ? DateUtils.parseIviDate(time) : null;
 		
@@ -0,0 +1,104 @@
+package ru.ivi.mapping;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Elements of a json array decoded on demand, see {@link JacksonJsoner#iterateArray}. Like
+ * {@link JacksonJsoner#readArray(JsonParser, com.fasterxml.jackson.databind.JsonNode, Class)} it yields a single object
+ * for a non-array value and nothing for null. Parse errors are thrown as RuntimeException with the IOException as cause.
+ */
+public final class JsonArrayIterator<T> implements Iterator<T>, Closeable {
+	
+	private final JsonParser mParser;
+	private final Class<T> mType;
+	private boolean mIsOneObject = false;
+	private boolean mIsFinished = false;
+	private boolean mHasNext = false;
+	private T mNext = null;
+	
+	JsonArrayIterator(final JsonParser parser, final Class<T> type) throws IOException {
+		mParser = parser;
+		mType = type;
+		
+		final JsonToken token = parser.nextToken();
+		if (token == null || token == JsonToken.VALUE_NULL) {
+			close();
+		} else {
+			mIsOneObject = token != JsonToken.START_ARRAY;
+		}
+	}
+	
+	@Override
+	public boolean hasNext() {
+		if (!mHasNext && !mIsFinished) {
+			try {
+				advance();
+			} catch (final IOException e) {
+				closeQuietly();
+				throw new RuntimeException(e);
+			} catch (final Throwable e) {
+				closeQuietly();
+				throw e;
+			}
+		}
+		return mHasNext;
+	}
+	
+	@Override
+	public T next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		final T next = mNext;
+		mNext = null;
+		mHasNext = false;
+		return next;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private void advance() throws IOException {
+		if (mIsOneObject) {
+			final Object element = JacksonJsoner.readArrayElement(mParser, mParser.getCurrentToken(), null, mType);
+			close();
+			if (element != JacksonJsoner.NOT_ELEMENT) {
+				mNext = (T) element;
+				mHasNext = true;
+			}
+			return;
+		}
+		
+		for (JsonToken token = mParser.nextToken(); token != null && token != JsonToken.END_ARRAY; token = mParser.nextToken()) {
+			final Object element = JacksonJsoner.readArrayElement(mParser, token, null, mType);
+			if (element != JacksonJsoner.NOT_ELEMENT) {
+				mNext = (T) element;
+				mHasNext = true;
+				return;
+			}
+		}
+		close();
+	}
+	
+	@Override
+	public void remove() {
+		throw new UnsupportedOperationException();
+	}
+	
+	@Override
+	public void close() throws IOException {
+		mIsFinished = true;
+		mParser.close();
+	}
+	
+	private void closeQuietly() {
+		try {
+			close();
+		} catch (final IOException ignore) {
+		}
+	}
+}
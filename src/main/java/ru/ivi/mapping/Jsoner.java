@@ -614,7 +614,7 @@ public final class Jsoner extends ValueHelper {
 				final String uniqueKeyName = getUniqueObjectKey(json, type);
 
 				if (uniqueKeyName != null) {
-					result = (T) Serializer.UNIQUE_OBJECTS_POOL.get(uniqueKeyName);
+					result = (T) Serializer.getUniqueObjectsPool().get(uniqueKeyName);
 					if (result != null && ((UniqueObject) result).skipOnRead()) {
 
 						return result;
@@ -627,7 +627,7 @@ public final class Jsoner extends ValueHelper {
 
 				read(json, result, allFields);
 
-				Serializer.UNIQUE_OBJECTS_POOL.put(uniqueKeyName, result);
+				Serializer.getUniqueObjectsPool().put(uniqueKeyName, result);
 
 			}
 		} else {
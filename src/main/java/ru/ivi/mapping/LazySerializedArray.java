@@ -0,0 +1,75 @@
+package ru.ivi.mapping;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Read-only list over an array blob, element is decoded by {@link Serializer#read(ReadableParcel, Class)} on first access
+ * and kept, other elements are not touched. Created by {@link Serializer#readLazyArray}.
+ * Safe for concurrent reads, threads racing for the same element may both decode it but all get the first decoded one.
+ */
+public final class LazySerializedArray<T> extends AbstractList<T> implements RandomAccess {
+	
+	// decoded null, so it is not decoded again
+	private static final Object NULL = new Object();
+	
+	private final byte[] mData;
+	private final int mOffset;
+	private final int mLength;
+	private final int mFormat;
+	private final int[] mStarts;
+	private final Class<T> mType;
+	private final AtomicReferenceArray<Object> mDecoded;
+	
+	LazySerializedArray(final byte[] data, final int offset, final int length, final int format, final int[] starts, final Class<T> type) {
+		mData = data;
+		mOffset = offset;
+		mLength = length;
+		mFormat = format;
+		mStarts = starts;
+		mType = type;
+		mDecoded = new AtomicReferenceArray<>(starts.length);
+	}
+	
+	@Override
+	public int size() {
+		return mStarts.length;
+	}
+	
+	@Override
+	@SuppressWarnings("unchecked")
+	public T get(final int index) {
+		final Object decoded = mDecoded.get(index);
+		if (decoded != null) {
+			return decoded == NULL ? null : (T) decoded;
+		}
+		
+		final Parcel parcel = Parcel.obtain();
+		try {
+			parcel.unmarshall(mData, mOffset, mLength);
+			parcel.setFormat(mFormat);
+			parcel.setDataPosition(mStarts[index]);
+			final T result = Serializer.read(parcel, mType);
+			if (mDecoded.compareAndSet(index, null, result == null ? NULL : result)) {
+				return result;
+			}
+			return get(index);
+		} finally {
+			parcel.recycle();
+		}
+	}
+	
+	public boolean isDecoded(final int index) {
+		return mDecoded.get(index) != null;
+	}
+	
+	/**
+	 * Drops decoded elements, so they can be collected and are decoded again on next access.
+	 */
+	public void release() {
+		for (int i = 0; i < mDecoded.length(); i++) {
+			mDecoded.set(i, null);
+		}
+	}
+}
@@ -0,0 +1,192 @@
+package ru.ivi.mapping;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Read-only parcel over a {@link ByteBuffer}, usually a {@link java.nio.MappedByteBuffer} of a file written
+ * by {@link Serializer}, so data is decoded straight from the page cache without copying it to the heap.
+ * Data positions are counted from the buffer position at the time it is set.
+ */
+public class MappedParcel extends ReadableParcel {
+	
+	private static final byte[] BYTES = new byte[0];
+	
+	private ByteBuffer mBuffer;
+	private byte[] mScratch = BYTES;
+	
+	public MappedParcel(final ByteBuffer buffer) {
+		setBuffer(buffer);
+	}
+	
+	public void setBuffer(final ByteBuffer buffer) {
+		mBuffer = buffer.slice().order(ByteOrder.BIG_ENDIAN);
+	}
+	
+	private void ensureAvailable(final int count) {
+		if (count > mBuffer.remaining()) {
+			handleEx(new EOFException("pos=" + mBuffer.position() + " need=" + count + " size=" + mBuffer.limit()));
+		}
+	}
+	
+	@Override
+	public void setDataPosition(final int i) {
+		if (i > mBuffer.limit()) {
+			throw new RuntimeException("attempt to set position outside buffer size: pos=" + i + " size=" + mBuffer.limit());
+		}
+		mBuffer.position(i);
+	}
+	
+	@Override
+	public int dataPosition() {
+		return mBuffer.position();
+	}
+	
+	@Override
+	MappedParcel duplicateForRead() {
+		final ByteBuffer buffer = mBuffer.duplicate();
+		buffer.clear();
+		final MappedParcel parcel = new MappedParcel(buffer);
+		parcel.setFormat(getFormat());
+		return parcel;
+	}
+	
+	/**
+	 * Drops the buffer, so a mapping is not kept reachable by the parcel. {@link #setBuffer(ByteBuffer)} makes it readable again.
+	 */
+	@Override
+	public void recycle() {
+		mBuffer = null;
+		mScratch = BYTES;
+	}
+	
+	@Override
+	public byte readByte() {
+		ensureAvailable(1);
+		return mBuffer.get();
+	}
+	
+	@Override
+	public int readInt() {
+		ensureAvailable(4);
+		return mBuffer.getInt();
+	}
+	
+	@Override
+	public long readLong() {
+		ensureAvailable(8);
+		return mBuffer.getLong();
+	}
+	
+	@Override
+	public void readByteArray(final byte[] arr) {
+		final int avail = mBuffer.remaining();
+		if (avail <= 0) {
+			throw new Error("-1");
+		}
+		mBuffer.get(arr, 0, Math.min(arr.length, avail));
+	}
+	
+	@Override
+	public void readCharArray(final char[] arr) {
+		if (arr != null && arr.length > 0) {
+			ensureAvailable(arr.length << 1);
+			mBuffer.asCharBuffer().get(arr);
+			skip(arr.length << 1);
+		}
+	}
+	
+	@Override
+	public void readIntArray(final int[] arr) {
+		if (arr != null && arr.length > 0) {
+			ensureAvailable(arr.length << 2);
+			mBuffer.asIntBuffer().get(arr);
+			skip(arr.length << 2);
+		}
+	}
+	
+	@Override
+	public void readLongArray(final long[] arr) {
+		if (arr != null && arr.length > 0) {
+			ensureAvailable(arr.length << 3);
+			mBuffer.asLongBuffer().get(arr);
+			skip(arr.length << 3);
+		}
+	}
+	
+	@Override
+	public void readFloatArray(final float[] arr) {
+		if (arr != null && arr.length > 0) {
+			ensureAvailable(arr.length << 2);
+			mBuffer.asFloatBuffer().get(arr);
+			skip(arr.length << 2);
+		}
+	}
+	
+	@Override
+	public void readDoubleArray(final double[] arr) {
+		if (arr != null && arr.length > 0) {
+			ensureAvailable(arr.length << 3);
+			mBuffer.asDoubleBuffer().get(arr);
+			skip(arr.length << 3);
+		}
+	}
+	
+	@Override
+	public void readBooleanArray(final boolean[] arr) {
+		if (arr != null && arr.length > 0) {
+			ensureAvailable(arr.length);
+			for (int i = 0; i < arr.length; i++) {
+				arr[i] = mBuffer.get() != 0;
+			}
+		}
+	}
+	
+	/**
+	 * Moves position past the values read through a view, views have their own positions.
+	 */
+	private void skip(final int byteCount) {
+		mBuffer.position(mBuffer.position() + byteCount);
+	}
+	
+	@Override
+	public String readString() {
+		if ((getFormat() & FORMAT_COMPACT_STRINGS) != 0) {
+			return readCompactString();
+		}
+		final int len = readCompactInt();
+		if (len == -1) {
+			return null;
+		}
+		if (len == 0) {
+			return "";
+		}
+		
+		final char[] chars = new char[len];
+		readCharArray(chars);
+		return new String(chars);
+	}
+	
+	private String readCompactString() {
+		final int header = readVarInt();
+		if (header == 0) {
+			return null;
+		}
+		final int byteCount = (header - 1) >>> 1;
+		if (byteCount == 0) {
+			return "";
+		}
+		ensureAvailable(byteCount);
+		if (mScratch.length < byteCount) {
+			mScratch = new byte[Math.max(byteCount, mScratch.length << 1)];
+		}
+		final byte[] bytes = mScratch;
+		mBuffer.get(bytes, 0, byteCount);
+		if (((header - 1) & 1) == 0) {
+			return decodeLatin1(bytes, 0, byteCount);
+		} else {
+			return decodeUtf8(bytes, 0, byteCount);
+		}
+	}
+}
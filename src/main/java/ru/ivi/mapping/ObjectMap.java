@@ -1,5 +1,10 @@
 package ru.ivi.mapping;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
@@ -62,6 +67,51 @@ public abstract class ObjectMap<Key, Value> {
 		return mFieldsArray;
 	}
 	
+	/**
+	 * Reads value of the json field, parser is on its first token. Generated maps override it with a switch over field names.
+	 *
+	 * @return false if there is no such field
+	 */
+	public boolean readJsonField(final Object obj, final String name, final JsonParser parser, final JsonNode sourceNode) throws IOException {
+		final IFieldInfo fieldInfo = (IFieldInfo) getFields().get(name);
+		if (fieldInfo == null) {
+			return false;
+		}
+		//noinspection unchecked
+		fieldInfo.read(obj, parser, sourceNode == null ? null : sourceNode.get(name));
+		return true;
+	}
+	
+	/**
+	 * Writes json fields of the object, without the enclosing braces. Generated maps override it with code without IFieldInfo calls.
+	 */
+	public void writeJson(final Object obj, final JsonGenerator generator) throws IOException {
+		final IFieldInfo[] fields = getSerializerFields();
+		for (int i = 0; i < fields.length; i++) {
+			//noinspection unchecked
+			fields[i].write(obj, generator);
+		}
+	}
+	
+	/**
+	 * Writes values of {@link #getSerializerFields()} in their order. Generated maps override it with code without IFieldInfo calls.
+	 */
+	public void writeFields(final Object obj, final Parcel parcel) {
+		final IFieldInfo[] fields = getSerializerFields();
+		for (int i = 0; i < fields.length; i++) {
+			//noinspection unchecked
+			fields[i].write(obj, parcel);
+		}
+	}
+	
+	public void readFields(final Object obj, final ReadableParcel parcel) {
+		final IFieldInfo[] fields = getSerializerFields();
+		for (int i = 0; i < fields.length; i++) {
+			//noinspection unchecked
+			fields[i].read(obj, parcel);
+		}
+	}
+	
 	public void addFields(final Map<Key, Value> fields) {
 		synchronized (mFillLock) {
 			getFields().putAll(fields);
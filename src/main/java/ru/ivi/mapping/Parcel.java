@@ -1,127 +1,104 @@
 package ru.ivi.mapping;
 
-import android.support.annotation.NonNull;
-
-import java.io.DataInputStream;
-import java.io.DataOutputStream;
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
 import java.util.Arrays;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 
-public class Parcel {
+/**
+ * Growable big-endian byte buffer used by {@link Serializer}, reads and writes.
+ * Primitives are encoded straight into the backing array, the layout of every value is the same
+ * as {@link java.io.DataOutputStream} produces, so blobs written by older versions stay readable.
+ */
+public class Parcel extends ReadableParcel {
 	
 	private static final byte[] BYTES = new byte[0];
 	private static final int ONE_BYTE_MASK = 0xff;
-	private volatile byte buf[];
+	// lengths below 128 fit the reserved byte, longer blocks are moved forward on end
+	private static final int LENGTH_PREFIX_SIZE = 1;
+	private static final int DEFAULT_MAX_POOL_SIZE = 8;
+	private static final int DEFAULT_MAX_RETAINED_BUFFER_SIZE = 256 * 1024;
+	private static final ConcurrentLinkedQueue<Parcel> POOL = new ConcurrentLinkedQueue<>();
+	private static final AtomicInteger POOL_SIZE = new AtomicInteger();
+	private static volatile int sMaxPoolSize = DEFAULT_MAX_POOL_SIZE;
+	private static volatile int sMaxRetainedBufferSize = DEFAULT_MAX_RETAINED_BUFFER_SIZE;
+	
+	private byte buf[];
 	private int pos;
-	private DataInputStream mStreamIn = null;
-	private DataOutputStream mStreamOut = null;
+	// start of parcel data inside buf, non zero only for unmarshalled foreign arrays
+	private int mBase = 0;
+	// end of readable data inside buf
+	private int mLimit;
+	// writes beyond this index go through grow(), zero for foreign arrays to copy them before the first write
+	private int mWriteLimit;
+	private byte[] mOwnBuf = null;
+	private boolean mPooled = false;
+	private boolean mInPool = false;
+	// positions of ints holding absolute data positions, tracked only for data which is moved afterwards
+	private int[] mRelocations = null;
+	private int mRelocationCount = 0;
 	
 	public Parcel() {
 		this(BYTES);
 	}
 	
 	public Parcel(final byte[] bufIn) {
-		for (int i = 0, bufInLength = bufIn.length; i < bufInLength; i++) {
-			bufIn[i] = 0;
-		}
-		buf = bufIn;
+		Arrays.fill(bufIn, (byte) 0);
+		setOwnBuffer(bufIn);
 		pos = 0;
-		mStreamOut = new DataOutputStream(new OutputStream() {
-			
-			@Override
-			public void write(final int oneByte) throws IOException {
-				ensureCapacity(pos + 1);
-				buf[pos] = (byte) oneByte;
-				pos += 1;
-			}
-			
-			@Override
-			public void write(@NonNull final byte[] bytes, final int off, final int len) throws IOException {
-				if ((off < 0) || (off > bytes.length) || (len < 0) ||
-					((off + len) - bytes.length > 0)) {
-					throw new IndexOutOfBoundsException();
-				}
-				ensureCapacity(pos + len);
-				System.arraycopy(bytes, off, buf, pos, len);
-				pos += len;
-			}
-			
-		});
-		mStreamIn = new DataInputStream(new InputStream() {
-			
-			@Override
-			public int read() throws IOException {
-				return (pos < buf.length) ? (buf[pos++] & ONE_BYTE_MASK) : -1;
-			}
-			
-			@Override
-			public int read(@NonNull final byte[] bytes, final int off, final int len) throws IOException {
-				int len1 = len;
-				if (bytes == null) {
-					throw new NullPointerException();
-				}
-				if (off < 0 || len1 < 0 || len1 > bytes.length - off) {
-					throw new IndexOutOfBoundsException();
-				}
-				
-				if (pos >= buf.length) {
-					return -1;
-				}
-				
-				final int avail = buf.length - pos;
-				if (len1 > avail) {
-					len1 = avail;
-				}
-				if (len1 <= 0) {
-					return 0;
-				}
-				System.arraycopy(buf, pos, bytes, off, len1);
-				pos += len1;
-				return len1;
-			}
-			
-			@Override
-			public long skip(final long count) throws IOException {
-				long avail = buf.length - pos;
-				if (count < avail) {
-					avail = count < 0 ? 0 : count;
-				}
-				
-				pos += avail;
-				return avail;
-			}
-			
-			@Override
-			public int available() throws IOException {
-				return buf.length - pos;
-			}
-			
-			@Override
-			public synchronized void mark(final int readlimit) {
-				throw new Error();
-			}
-			
-			@Override
-			public void reset() throws IOException {
-				throw new Error();
-			}
-		});
 	}
 	
 	public static Parcel obtain() {
-		return new Parcel(BYTES);
+		final Parcel parcel = POOL.poll();
+		if (parcel == null) {
+			final Parcel newParcel = new Parcel(BYTES);
+			newParcel.mPooled = true;
+			return newParcel;
+		}
+		POOL_SIZE.decrementAndGet();
+		parcel.mInPool = false;
+		parcel.setFormat(0);
+		parcel.pos = 0;
+		return parcel;
+	}
+	
+	/**
+	 * @param maxPoolSize count of recycled parcels kept for {@link #obtain()}
+	 * @param maxRetainedBufferSize parcels with a bigger grown buffer drop it on {@link #recycle()}
+	 */
+	public static void setPoolLimits(final int maxPoolSize, final int maxRetainedBufferSize) {
+		sMaxPoolSize = maxPoolSize;
+		sMaxRetainedBufferSize = maxRetainedBufferSize;
+		while (POOL_SIZE.get() > maxPoolSize && POOL.poll() != null) {
+			POOL_SIZE.decrementAndGet();
+		}
+	}
+	
+	private void setOwnBuffer(final byte[] bytes) {
+		buf = bytes;
+		mBase = 0;
+		mLimit = bytes.length;
+		mWriteLimit = bytes.length;
 	}
 	
 	private void ensureCapacity(final int minCapacity) {
 		// overflow-conscious code
-		if (minCapacity - buf.length > 0) {
+		if (minCapacity - mWriteLimit > 0) {
 			grow(minCapacity);
 		}
 	}
 	
 	private void grow(final int minCapacity) {
+		if (mOwnBuf != null) {
+			detach();
+			if (minCapacity - mWriteLimit <= 0) {
+				return;
+			}
+		}
 		// overflow-conscious code
 		final int oldCapacity = buf.length;
 		int newCapacity = oldCapacity << 1;
@@ -135,332 +112,685 @@ public class Parcel {
 			}
 			newCapacity = Integer.MAX_VALUE;
 		}
-		buf = Arrays.copyOf(buf, newCapacity);
+		setOwnBuffer(Arrays.copyOf(buf, newCapacity));
+	}
+	
+	/**
+	 * Copies unmarshalled foreign data into an own buffer, so writes never touch the caller's array.
+	 */
+	private void detach() {
+		final int base = mBase;
+		final byte[] data = Arrays.copyOfRange(buf, base, mLimit);
+		mOwnBuf = null;
+		setOwnBuffer(data);
+		pos -= base;
+	}
+	
+	private void ensureAvailable(final int count) {
+		if (pos + count > mLimit) {
+			handleEx(new EOFException("pos=" + (pos - mBase) + " need=" + count + " size=" + (mLimit - mBase)));
+		}
 	}
 	
+	@Override
 	public void setDataPosition(final int i) {
-		if (i > buf.length) {
-			throw new RuntimeException("attempt to set position outside buffer size: pos=" + i + " size=" + buf.length);
+		if (i > mLimit - mBase) {
+			throw new RuntimeException("attempt to set position outside buffer size: pos=" + i + " size=" + (mLimit - mBase));
 		}
-		pos = i;
+		pos = mBase + i;
 	}
 	
+	/**
+	 * Makes parcel read {@code length} bytes of {@code data} starting from {@code offs} without copying them.
+	 * Data positions are counted from {@code offs}; the array must not be changed until {@link #recycle()}.
+	 */
 	public void unmarshall(final byte[] data, final int offs, final int length) {
-		pos = length;
-		buf = Arrays.copyOfRange(data, offs, length);
+		if (offs < 0 || length < 0 || offs + length > data.length) {
+			throw new IndexOutOfBoundsException("offs=" + offs + " length=" + length + " size=" + data.length);
+		}
+		if (mOwnBuf == null) {
+			mOwnBuf = buf;
+		}
+		buf = data;
+		mBase = offs;
+		mLimit = offs + length;
+		mWriteLimit = 0;
+		pos = mLimit;
 	}
 	
+	void trackRelocations() {
+		mRelocations = new int[16];
+		mRelocationCount = 0;
+	}
+	
+	/**
+	 * Registers the int at {@code position} as an absolute data position, does nothing unless tracking is on.
+	 */
+	void addRelocation(final int position) {
+		final int[] relocations = mRelocations;
+		if (relocations != null) {
+			if (mRelocationCount == relocations.length) {
+				mRelocations = Arrays.copyOf(relocations, relocations.length << 1);
+			}
+			mRelocations[mRelocationCount++] = position;
+		}
+	}
+	
+	/**
+	 * Copies data up to the current position to {@code dest}, registered absolute positions are shifted by {@code destPos}.
+	 */
+	void copyTo(final byte[] dest, final int destPos) {
+		System.arraycopy(buf, mBase, dest, destPos, pos - mBase);
+		for (int i = 0; i < mRelocationCount; i++) {
+			final int p = destPos + mRelocations[i];
+			final int value = (((dest[p] & ONE_BYTE_MASK) << 24)
+				| ((dest[p + 1] & ONE_BYTE_MASK) << 16)
+				| ((dest[p + 2] & ONE_BYTE_MASK) << 8)
+				| (dest[p + 3] & ONE_BYTE_MASK)) + destPos;
+			dest[p] = (byte) (value >>> 24);
+			dest[p + 1] = (byte) (value >>> 16);
+			dest[p + 2] = (byte) (value >>> 8);
+			dest[p + 3] = (byte) value;
+		}
+	}
+	
+	/**
+	 * Pooled parcel over the same data.
+	 */
+	@Override
+	Parcel duplicateForRead() {
+		final Parcel parcel = obtain();
+		parcel.unmarshall(buf, mBase, mLimit - mBase);
+		parcel.setFormat(getFormat());
+		return parcel;
+	}
+	
+	@Override
 	public void recycle() {
-		mStreamOut = null;
-		mStreamIn = null;
-		pos = -1;
-		buf = null;
+		if (!mPooled) {
+			pos = -1;
+			buf = null;
+			mOwnBuf = null;
+			return;
+		}
+		if (mInPool) {
+			return;
+		}
+		
+		byte[] ownBuf = mOwnBuf != null ? mOwnBuf : buf;
+		mOwnBuf = null;
+		if (ownBuf.length > sMaxRetainedBufferSize) {
+			ownBuf = BYTES;
+		}
+		setOwnBuffer(ownBuf);
+		pos = 0;
+		setFormat(0);
+		mRelocations = null;
+		mRelocationCount = 0;
+		
+		if (POOL_SIZE.incrementAndGet() <= sMaxPoolSize) {
+			mInPool = true;
+			POOL.offer(this);
+		} else {
+			POOL_SIZE.decrementAndGet();
+		}
 	}
 	
+	@Override
 	public int dataPosition() {
-		return pos;
+		return pos - mBase;
 	}
 	
-	public void writeInt(final int i) {
-		try {
-			mStreamOut.writeInt(i);
-		} catch (final IOException e) {
-			handleEx(e);
+	/**
+	 * Unsigned LEB128: seven bits per byte, the high bit marks that more bytes follow.
+	 */
+	public void writeVarInt(final int value) {
+		ensureCapacity(pos + 5);
+		final byte[] b = buf;
+		int p = pos;
+		int v = value;
+		while ((v & ~0x7f) != 0) {
+			b[p++] = (byte) ((v & 0x7f) | 0x80);
+			v >>>= 7;
 		}
+		b[p++] = (byte) v;
+		pos = p;
 	}
 	
-	public void writeStringArray(final String[] arr) {
-		if (arr != null && arr.length > 0) {
-			for (int i = 0; i < arr.length; i++) {
-				writeString(arr[i]);
-			}
+	public void writeVarLong(final long value) {
+		ensureCapacity(pos + 10);
+		final byte[] b = buf;
+		int p = pos;
+		long v = value;
+		while ((v & ~0x7fL) != 0) {
+			b[p++] = (byte) ((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		b[p++] = (byte) v;
+		pos = p;
+	}
+	
+	/**
+	 * Fixed four bytes in default format, zig-zag varint with {@link #FORMAT_COMPACT_INTS}.
+	 */
+	public void writeCompactInt(final int value) {
+		if ((getFormat() & FORMAT_COMPACT_INTS) != 0) {
+			writeVarInt((value << 1) ^ (value >> 31));
+		} else {
+			writeInt(value);
+		}
+	}
+	
+	public void writeCompactLong(final long value) {
+		if ((getFormat() & FORMAT_COMPACT_INTS) != 0) {
+			writeVarLong((value << 1) ^ (value >> 63));
+		} else {
+			writeLong(value);
+		}
+	}
+	
+	/**
+	 * Starts a block prefixed with its varint length, {@link #LENGTH_PREFIX_SIZE} bytes are reserved for the prefix.
+	 *
+	 * @return position of block data to pass to {@link #endLengthPrefixed(int)}
+	 */
+	public int beginLengthPrefixed() {
+		ensureCapacity(pos + LENGTH_PREFIX_SIZE);
+		pos += LENGTH_PREFIX_SIZE;
+		return dataPosition();
+	}
+	
+	/**
+	 * Writes length of the block started by {@link #beginLengthPrefixed()} as a plain varint,
+	 * block data is moved forward when the varint needs more than the reserved bytes.
+	 * Positions inside the block must not be stored as absolute values.
+	 */
+	public void endLengthPrefixed(final int dataStart) {
+		final int length = dataPosition() - dataStart;
+		final int extra = varIntSize(length) - LENGTH_PREFIX_SIZE;
+		if (extra > 0) {
+			ensureCapacity(pos + extra);
+			final int start = mBase + dataStart;
+			System.arraycopy(buf, start, buf, start + extra, length);
+			pos += extra;
 		}
+		final byte[] b = buf;
+		int p = mBase + dataStart - LENGTH_PREFIX_SIZE;
+		int v = length;
+		while ((v & ~0x7f) != 0) {
+			b[p++] = (byte) ((v & 0x7f) | 0x80);
+			v >>>= 7;
+		}
+		b[p] = (byte) v;
+	}
+	
+	private static int varIntSize(final int value) {
+		int size = 1;
+		for (int v = value >>> 7; v != 0; v >>>= 7) {
+			size++;
+		}
+		return size;
+	}
+	
+	public void writeInt(final int i) {
+		ensureCapacity(pos + 4);
+		final byte[] b = buf;
+		int p = pos;
+		b[p++] = (byte) (i >>> 24);
+		b[p++] = (byte) (i >>> 16);
+		b[p++] = (byte) (i >>> 8);
+		b[p++] = (byte) i;
+		pos = p;
 	}
 	
-	public void readStringArray(final String[] arr) {
+	public void writeStringArray(final String[] arr) {
 		if (arr != null && arr.length > 0) {
 			for (int i = 0; i < arr.length; i++) {
-				arr[i] = readString();
+				writeString(arr[i]);
 			}
 		}
 	}
 	
 	public void writeByteArray(final byte[] arr) {
-		try {
-			mStreamOut.write(arr);
-		} catch (final IOException e) {
-			handleEx(e);
-		}
+		final int len = arr.length;
+		ensureCapacity(pos + len);
+		System.arraycopy(arr, 0, buf, pos, len);
+		pos += len;
 	}
 	
+	@Override
 	public void readByteArray(final byte[] arr) {
-		try {
-			if (-1 == mStreamIn.read(arr, 0, arr.length)) {
-				throw new Error("-1");
-			}
-		} catch (final IOException e) {
-			handleEx(e);
+		final int avail = mLimit - pos;
+		if (avail <= 0) {
+			throw new Error("-1");
 		}
+		final int len = Math.min(arr.length, avail);
+		System.arraycopy(buf, pos, arr, 0, len);
+		pos += len;
+	}
+	
+	/**
+	 * Arrays at least this long are copied through ByteBuffer views in one pass, shorter ones value by value.
+	 */
+	private static final int BULK_ARRAY_MIN_LENGTH = 16;
+	
+	/**
+	 * @return big-endian buffer over the next byteCount bytes of buf, position is moved past them
+	 */
+	private ByteBuffer writeView(final int byteCount) {
+		ensureCapacity(pos + byteCount);
+		final ByteBuffer view = ByteBuffer.wrap(buf, pos, byteCount);
+		pos += byteCount;
+		return view;
+	}
+	
+	private ByteBuffer readView(final int byteCount) {
+		ensureAvailable(byteCount);
+		final ByteBuffer view = ByteBuffer.wrap(buf, pos, byteCount);
+		pos += byteCount;
+		return view;
 	}
 	
 	public void writeIntArray(final int[] arr) {
 		if (arr != null && arr.length > 0) {
-			for (int i = 0; i < arr.length; i++) {
-				writeInt(arr[i]);
+			if (arr.length >= BULK_ARRAY_MIN_LENGTH) {
+				writeView(arr.length << 2).asIntBuffer().put(arr);
+			} else {
+				for (int i = 0; i < arr.length; i++) {
+					writeInt(arr[i]);
+				}
 			}
 		}
 	}
 	
+	@Override
 	public void readIntArray(final int[] arr) {
 		if (arr != null && arr.length > 0) {
-			for (int i = 0; i < arr.length; i++) {
-				arr[i] = readInt();
+			if (arr.length >= BULK_ARRAY_MIN_LENGTH) {
+				readView(arr.length << 2).asIntBuffer().get(arr);
+			} else {
+				for (int i = 0; i < arr.length; i++) {
+					arr[i] = readInt();
+				}
 			}
 		}
 	}
 	
 	public void writeCharArray(final char[] arr) {
 		if (arr != null && arr.length > 0) {
-			for (int i = 0; i < arr.length; i++) {
-				writeChar(arr[i]);
+			if (arr.length >= BULK_ARRAY_MIN_LENGTH) {
+				writeView(arr.length << 1).asCharBuffer().put(arr);
+			} else {
+				for (int i = 0; i < arr.length; i++) {
+					writeChar(arr[i]);
+				}
 			}
 		}
 	}
 	
+	@Override
 	public void readCharArray(final char[] arr) {
 		if (arr != null && arr.length > 0) {
-			for (int i = 0; i < arr.length; i++) {
-				arr[i] = readChar();
+			if (arr.length >= BULK_ARRAY_MIN_LENGTH) {
+				readView(arr.length << 1).asCharBuffer().get(arr);
+			} else {
+				for (int i = 0; i < arr.length; i++) {
+					arr[i] = readChar();
+				}
 			}
 		}
 	}
 	
 	private char readChar() {
-		try {
-			return mStreamIn.readChar();
-		} catch (final IOException e) {
-			handleEx(e);
-			throw new Error(e);
-		}
+		ensureAvailable(2);
+		final byte[] b = buf;
+		final int p = pos;
+		pos = p + 2;
+		return (char) (((b[p] & ONE_BYTE_MASK) << 8) | (b[p + 1] & ONE_BYTE_MASK));
 	}
 	
 	private void writeChar(final char c) {
-		try {
-			mStreamOut.writeChar(c);
-		} catch (final IOException e) {
-			handleEx(e);
-		}
+		ensureCapacity(pos + 2);
+		buf[pos] = (byte) (c >>> 8);
+		buf[pos + 1] = (byte) c;
+		pos += 2;
 	}
 	
 	public void writeLongArray(final long[] arr) {
 		if (arr != null && arr.length > 0) {
-			for (int i = 0; i < arr.length; i++) {
-				writeLong(arr[i]);
+			if (arr.length >= BULK_ARRAY_MIN_LENGTH) {
+				writeView(arr.length << 3).asLongBuffer().put(arr);
+			} else {
+				for (int i = 0; i < arr.length; i++) {
+					writeLong(arr[i]);
+				}
 			}
 		}
 	}
 	
+	@Override
 	public void readLongArray(final long[] arr) {
 		if (arr != null && arr.length > 0) {
-			for (int i = 0; i < arr.length; i++) {
-				arr[i] = readLong();
+			if (arr.length >= BULK_ARRAY_MIN_LENGTH) {
+				readView(arr.length << 3).asLongBuffer().get(arr);
+			} else {
+				for (int i = 0; i < arr.length; i++) {
+					arr[i] = readLong();
+				}
 			}
 		}
 	}
 	
 	public void writeBooleanArray(final boolean[] arr) {
 		if (arr != null && arr.length > 0) {
+			ensureCapacity(pos + arr.length);
+			final byte[] b = buf;
+			int p = pos;
 			for (int i = 0; i < arr.length; i++) {
-				writeBoolean(arr[i]);
+				b[p++] = arr[i] ? (byte) 1 : (byte) 0;
 			}
+			pos = p;
 		}
 	}
 	
+	@Override
 	public void readBooleanArray(final boolean[] arr) {
 		if (arr != null && arr.length > 0) {
+			ensureAvailable(arr.length);
+			final byte[] b = buf;
+			int p = pos;
 			for (int i = 0; i < arr.length; i++) {
-				arr[i] = readBoolean();
+				arr[i] = b[p++] != 0;
 			}
-		}
-	}
-	
-	private boolean readBoolean() {
-		try {
-			return mStreamIn.readBoolean();
-		} catch (final IOException e) {
-			handleEx(e);
-			throw new Error(e);
-		}
-	}
-	
-	private void writeBoolean(final boolean b) {
-		try {
-			mStreamOut.writeBoolean(b);
-		} catch (final IOException e) {
-			handleEx(e);
+			pos = p;
 		}
 	}
 	
 	public void writeFloatArray(final float[] arr) {
 		if (arr != null && arr.length > 0) {
-			for (int i = 0; i < arr.length; i++) {
-				writeFloat(arr[i]);
+			if (arr.length >= BULK_ARRAY_MIN_LENGTH) {
+				writeView(arr.length << 2).asFloatBuffer().put(arr);
+			} else {
+				for (int i = 0; i < arr.length; i++) {
+					writeFloat(arr[i]);
+				}
 			}
 		}
 	}
 	
+	@Override
 	public void readFloatArray(final float[] arr) {
 		if (arr != null && arr.length > 0) {
-			for (int i = 0; i < arr.length; i++) {
-				arr[i] = readFloat();
+			if (arr.length >= BULK_ARRAY_MIN_LENGTH) {
+				readView(arr.length << 2).asFloatBuffer().get(arr);
+			} else {
+				for (int i = 0; i < arr.length; i++) {
+					arr[i] = readFloat();
+				}
 			}
 		}
 	}
 	
 	public void writeDoubleArray(final double[] arr) {
 		if (arr != null && arr.length > 0) {
-			for (int i = 0; i < arr.length; i++) {
-				writeDouble(arr[i]);
+			if (arr.length >= BULK_ARRAY_MIN_LENGTH) {
+				writeView(arr.length << 3).asDoubleBuffer().put(arr);
+			} else {
+				for (int i = 0; i < arr.length; i++) {
+					writeDouble(arr[i]);
+				}
 			}
 		}
 	}
 	
+	@Override
 	public void readDoubleArray(final double[] arr) {
 		if (arr != null && arr.length > 0) {
-			for (int i = 0; i < arr.length; i++) {
-				arr[i] = readDouble();
+			if (arr.length >= BULK_ARRAY_MIN_LENGTH) {
+				readView(arr.length << 3).asDoubleBuffer().get(arr);
+			} else {
+				for (int i = 0; i < arr.length; i++) {
+					arr[i] = readDouble();
+				}
 			}
 		}
 	}
 	
+	@Override
 	public int readInt() {
-		try {
-			return mStreamIn.readInt();
-		} catch (final IOException e) {
-			
-			handleEx(e);
-			throw new Error(e);
-		}
+		ensureAvailable(4);
+		final byte[] b = buf;
+		final int p = pos;
+		pos = p + 4;
+		return ((b[p] & ONE_BYTE_MASK) << 24)
+			| ((b[p + 1] & ONE_BYTE_MASK) << 16)
+			| ((b[p + 2] & ONE_BYTE_MASK) << 8)
+			| (b[p + 3] & ONE_BYTE_MASK);
 	}
 	
 	public void writeString(final String str) {
+		if ((getFormat() & FORMAT_COMPACT_STRINGS) != 0) {
+			writeCompactString(str);
+			return;
+		}
 		final int len = str == null ? -1 : str.length();
-		try {
-			mStreamOut.writeInt(len);
-			if (len > 0) {
-				final char[] chars = new char[len];
-				str.getChars(0, len, chars, 0);
-				for (int i = 0; i < chars.length; i++) {
-					mStreamOut.writeChar(chars[i]);
-				}
+		if (len > 0) {
+			// length header and all chars are reserved at once
+			ensureCapacity(pos + 5 + (len << 1));
+			writeCompactInt(len);
+			final byte[] b = buf;
+			int p = pos;
+			for (int i = 0; i < len; i++) {
+				final char c = str.charAt(i);
+				b[p++] = (byte) (c >>> 8);
+				b[p++] = (byte) c;
 			}
-		} catch (final IOException e) {
-			handleEx(e);
+			pos = p;
+		} else {
+			writeCompactInt(len);
 		}
 	}
 	
+	@Override
 	public String readString() {
-		try {
-			final int len = mStreamIn.readInt();
-			if (len == -1) {
-				return null;
-			}
-			if (len == 0) {
-				return "";
+		if ((getFormat() & FORMAT_COMPACT_STRINGS) != 0) {
+			return readCompactString();
+		}
+		final int len = readCompactInt();
+		if (len == -1) {
+			return null;
+		}
+		if (len == 0) {
+			return "";
+		}
+		
+		ensureAvailable(len << 1);
+		final byte[] b = buf;
+		int p = pos;
+		final char[] chars = new char[len];
+		for (int i = 0; i < len; i++) {
+			chars[i] = (char) (((b[p] & ONE_BYTE_MASK) << 8) | (b[p + 1] & ONE_BYTE_MASK));
+			p += 2;
+		}
+		pos = p;
+		return new String(chars);
+	}
+	
+	// header is 0 for null, otherwise (byteCount << 1 | utf8Flag) + 1
+	private void writeCompactString(final String str) {
+		if (str == null) {
+			writeVarInt(0);
+			return;
+		}
+		final int len = str.length();
+		boolean latin1 = true;
+		for (int i = 0; i < len; i++) {
+			if (str.charAt(i) > ONE_BYTE_MASK) {
+				latin1 = false;
+				break;
 			}
-			
-			final char[] chars = new char[len];
+		}
+		if (latin1) {
+			writeVarInt((len << 1) + 1);
+			ensureCapacity(pos + len);
+			final byte[] b = buf;
+			int p = pos;
 			for (int i = 0; i < len; i++) {
-				chars[i] = mStreamIn.readChar();
+				b[p++] = (byte) str.charAt(i);
+			}
+			pos = p;
+		} else {
+			final int byteCount = utf8Length(str);
+			writeVarInt(((byteCount << 1) | 1) + 1);
+			ensureCapacity(pos + byteCount);
+			pos = encodeUtf8(str, buf, pos);
+		}
+	}
+	
+	private String readCompactString() {
+		final int header = readVarInt();
+		if (header == 0) {
+			return null;
+		}
+		final int byteCount = (header - 1) >>> 1;
+		if (byteCount == 0) {
+			return "";
+		}
+		ensureAvailable(byteCount);
+		final int start = pos;
+		pos += byteCount;
+		if (((header - 1) & 1) == 0) {
+			return decodeLatin1(buf, start, byteCount);
+		} else {
+			return decodeUtf8(buf, start, byteCount);
+		}
+	}
+	
+	private static int utf8Length(final String str) {
+		final int len = str.length();
+		int count = 0;
+		for (int i = 0; i < len; i++) {
+			final char c = str.charAt(i);
+			if (c < 0x80) {
+				count++;
+			} else if (c < 0x800) {
+				count += 2;
+			} else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+				count += 4;
+				i++;
+			} else {
+				// lone surrogates are kept as three byte sequences, so any java string survives the round trip
+				count += 3;
+			}
+		}
+		return count;
+	}
+	
+	private static int encodeUtf8(final String str, final byte[] b, final int offset) {
+		final int len = str.length();
+		int p = offset;
+		for (int i = 0; i < len; i++) {
+			final char c = str.charAt(i);
+			if (c < 0x80) {
+				b[p++] = (byte) c;
+			} else if (c < 0x800) {
+				b[p++] = (byte) (0xc0 | (c >> 6));
+				b[p++] = (byte) (0x80 | (c & 0x3f));
+			} else if (Character.isHighSurrogate(c) && i + 1 < len && Character.isLowSurrogate(str.charAt(i + 1))) {
+				final int codePoint = Character.toCodePoint(c, str.charAt(++i));
+				b[p++] = (byte) (0xf0 | (codePoint >> 18));
+				b[p++] = (byte) (0x80 | ((codePoint >> 12) & 0x3f));
+				b[p++] = (byte) (0x80 | ((codePoint >> 6) & 0x3f));
+				b[p++] = (byte) (0x80 | (codePoint & 0x3f));
+			} else {
+				b[p++] = (byte) (0xe0 | (c >> 12));
+				b[p++] = (byte) (0x80 | ((c >> 6) & 0x3f));
+				b[p++] = (byte) (0x80 | (c & 0x3f));
 			}
-			return new String(chars);
-		} catch (final IOException e) {
-			handleEx(e);
-			throw new Error(e);
 		}
+		return p;
 	}
 	
 	public byte[] marshall() {
-		return Arrays.copyOf(buf, pos);
+		return Arrays.copyOfRange(buf, mBase, pos);
+	}
+	
+	/**
+	 * Writes data up to the current position to the stream straight from the backing array.
+	 */
+	public void writeTo(final OutputStream out) throws IOException {
+		out.write(buf, mBase, pos - mBase);
+	}
+	
+	/**
+	 * Reads {@code length} bytes from the stream into the parcel at the current position, the same way writes do,
+	 * so a reused parcel keeps its grown buffer between calls.
+	 * Reads stop at the end of the data read, bytes left in the buffer from earlier calls are not readable.
+	 */
+	public void readFrom(final InputStream in, final int length) throws IOException {
+		if (length < 0) {
+			throw new IOException("negative length " + length);
+		}
+		ensureCapacity(pos + length);
+		final int end = pos + length;
+		while (pos < end) {
+			final int count = in.read(buf, pos, end - pos);
+			if (count < 0) {
+				throw new EOFException("need=" + (end - pos) + " bytes more");
+			}
+			pos += count;
+		}
+		mLimit = end;
 	}
 	
+	@Override
 	public byte readByte() {
-		try {
-			return mStreamIn.readByte();
-		} catch (final IOException e) {
-			handleEx(e);
-			throw new Error(e);
-		}
+		ensureAvailable(1);
+		return buf[pos++];
 	}
 	
 	public void writeByte(final byte b) {
-		try {
-			mStreamOut.writeByte(b);
-		} catch (final IOException e) {
-			handleEx(e);
-		}
-	}
-	
-	public double readDouble() {
-		try {
-			return mStreamIn.readDouble();
-		} catch (final IOException e) {
-			handleEx(e);
-			throw new Error(e);
-		}
-		
-	}
-	
-	public float readFloat() {
-		try {
-			return mStreamIn.readFloat();
-		} catch (final IOException e) {
-			handleEx(e);
-			throw new Error(e);
-		}
+		ensureCapacity(pos + 1);
+		buf[pos++] = b;
 	}
 	
+	@Override
 	public long readLong() {
-		try {
-			return mStreamIn.readLong();
-		} catch (final IOException e) {
-			handleEx(e);
-			throw new Error(e);
-		}
+		ensureAvailable(8);
+		final byte[] b = buf;
+		final int p = pos;
+		pos = p + 8;
+		return ((long) b[p] << 56)
+			| ((long) (b[p + 1] & ONE_BYTE_MASK) << 48)
+			| ((long) (b[p + 2] & ONE_BYTE_MASK) << 40)
+			| ((long) (b[p + 3] & ONE_BYTE_MASK) << 32)
+			| ((long) (b[p + 4] & ONE_BYTE_MASK) << 24)
+			| ((b[p + 5] & ONE_BYTE_MASK) << 16)
+			| ((b[p + 6] & ONE_BYTE_MASK) << 8)
+			| (b[p + 7] & ONE_BYTE_MASK);
 	}
 	
 	public void writeDouble(final double value) {
-		
-		try {
-			mStreamOut.writeDouble(value);
-		} catch (final IOException e) {
-			handleEx(e);
-		}
+		writeLong(Double.doubleToLongBits(value));
 	}
 	
 	public void writeFloat(final float value) {
-		
-		
-		try {
-			mStreamOut.writeFloat(value);
-		} catch (final IOException e) {
-			handleEx(e);
-		}
+		writeInt(Float.floatToIntBits(value));
 	}
 	
 	public void writeLong(final long value) {
-		
-		try {
-			mStreamOut.writeLong(value);
-		} catch (final IOException e) {
-			handleEx(e);
-		}
-	}
-	
-	private static void handleEx(final IOException e) {
-		e.printStackTrace();
-		throw new Error(e);
+		ensureCapacity(pos + 8);
+		final byte[] b = buf;
+		int p = pos;
+		b[p++] = (byte) (value >>> 56);
+		b[p++] = (byte) (value >>> 48);
+		b[p++] = (byte) (value >>> 40);
+		b[p++] = (byte) (value >>> 32);
+		b[p++] = (byte) (value >>> 24);
+		b[p++] = (byte) (value >>> 16);
+		b[p++] = (byte) (value >>> 8);
+		b[p++] = (byte) value;
+		pos = p;
 	}
 	
-	
 }
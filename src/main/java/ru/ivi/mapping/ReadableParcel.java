@@ -0,0 +1,161 @@
+package ru.ivi.mapping;
+
+/**
+ * Read side of serialized data, everything {@link Serializer} needs to decode objects: {@link Parcel} reads a byte array
+ * it can also write, {@link MappedParcel} reads a {@link java.nio.ByteBuffer} and has no write methods at all.
+ * Reading past the end of data throws {@link Error} caused by {@link java.io.EOFException}.
+ */
+public abstract class ReadableParcel {
+	
+	/**
+	 * Strings are written as a varint header and one byte per char when all chars fit Latin-1, UTF-8 otherwise.
+	 */
+	public static final int FORMAT_COMPACT_STRINGS = 1;
+	/**
+	 * Values passed to writeCompactInt/writeCompactLong and string lengths are zig-zag varints,
+	 * length prefixes are plain varints.
+	 */
+	public static final int FORMAT_COMPACT_INTS = 2;
+	
+	private static final int ONE_BYTE_MASK = 0xff;
+	
+	private int mFormat = 0;
+	
+	/**
+	 * @param format combination of FORMAT_* flags, affects how values are written and read from now on
+	 */
+	public void setFormat(final int format) {
+		mFormat = format;
+	}
+	
+	public int getFormat() {
+		return mFormat;
+	}
+	
+	public abstract void setDataPosition(final int i);
+	
+	public abstract int dataPosition();
+	
+	/**
+	 * Parcel reading the same data with its own position, for decoding parts of the data concurrently.
+	 */
+	abstract ReadableParcel duplicateForRead();
+	
+	public abstract void recycle();
+	
+	public abstract byte readByte();
+	
+	public abstract int readInt();
+	
+	public abstract long readLong();
+	
+	public float readFloat() {
+		return Float.intBitsToFloat(readInt());
+	}
+	
+	public double readDouble() {
+		return Double.longBitsToDouble(readLong());
+	}
+	
+	public int readVarInt() {
+		int result = 0;
+		for (int shift = 0; shift < 32; shift += 7) {
+			final byte b = readByte();
+			result |= (b & 0x7f) << shift;
+			if (b >= 0) {
+				return result;
+			}
+		}
+		throw new Error("malformed varint at " + dataPosition());
+	}
+	
+	public long readVarLong() {
+		long result = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			final byte b = readByte();
+			result |= (long) (b & 0x7f) << shift;
+			if (b >= 0) {
+				return result;
+			}
+		}
+		throw new Error("malformed varint at " + dataPosition());
+	}
+	
+	public int readCompactInt() {
+		if ((mFormat & FORMAT_COMPACT_INTS) != 0) {
+			final int v = readVarInt();
+			return (v >>> 1) ^ -(v & 1);
+		} else {
+			return readInt();
+		}
+	}
+	
+	public long readCompactLong() {
+		if ((mFormat & FORMAT_COMPACT_INTS) != 0) {
+			final long v = readVarLong();
+			return (v >>> 1) ^ -(v & 1);
+		} else {
+			return readLong();
+		}
+	}
+	
+	public abstract String readString();
+	
+	public void readStringArray(final String[] arr) {
+		if (arr != null && arr.length > 0) {
+			for (int i = 0; i < arr.length; i++) {
+				arr[i] = readString();
+			}
+		}
+	}
+	
+	public abstract void readByteArray(final byte[] arr);
+	
+	public abstract void readCharArray(final char[] arr);
+	
+	public abstract void readIntArray(final int[] arr);
+	
+	public abstract void readLongArray(final long[] arr);
+	
+	public abstract void readBooleanArray(final boolean[] arr);
+	
+	public abstract void readFloatArray(final float[] arr);
+	
+	public abstract void readDoubleArray(final double[] arr);
+	
+	static String decodeLatin1(final byte[] b, final int offset, final int byteCount) {
+		final char[] chars = new char[byteCount];
+		for (int i = 0; i < byteCount; i++) {
+			chars[i] = (char) (b[offset + i] & ONE_BYTE_MASK);
+		}
+		return new String(chars);
+	}
+	
+	static String decodeUtf8(final byte[] b, final int offset, final int byteCount) {
+		final char[] chars = new char[byteCount];
+		final int end = offset + byteCount;
+		int count = 0;
+		int p = offset;
+		while (p < end) {
+			final int b0 = b[p++] & ONE_BYTE_MASK;
+			if (b0 < 0x80) {
+				chars[count++] = (char) b0;
+			} else if (b0 < 0xe0) {
+				chars[count++] = (char) (((b0 & 0x1f) << 6) | (b[p++] & 0x3f));
+			} else if (b0 < 0xf0) {
+				chars[count++] = (char) (((b0 & 0x0f) << 12) | ((b[p++] & 0x3f) << 6) | (b[p++] & 0x3f));
+			} else {
+				final int codePoint = ((b0 & 0x07) << 18) | ((b[p++] & 0x3f) << 12) | ((b[p++] & 0x3f) << 6) | (b[p++] & 0x3f);
+				final int supplementary = codePoint - Character.MIN_SUPPLEMENTARY_CODE_POINT;
+				chars[count++] = (char) ((supplementary >>> 10) + Character.MIN_HIGH_SURROGATE);
+				chars[count++] = (char) ((supplementary & 0x3ff) + Character.MIN_LOW_SURROGATE);
+			}
+		}
+		return new String(chars, 0, count);
+	}
+	
+	static void handleEx(final Exception e) {
+		e.printStackTrace();
+		throw new Error(e);
+	}
+}
@@ -6,11 +6,11 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
 
-public class SerializableReader extends BaseValueReader<Parcel> {
+public class SerializableReader extends BaseValueReader<ReadableParcel> {
 	private final Map<String, Integer> mFieldPositions = new HashMap<>();
 	private int mEndPosition = - 1;
 
-	SerializableReader(final Parcel data) {
+	SerializableReader(final ReadableParcel data) {
 		super(data);
 	}
 
@@ -0,0 +1,164 @@
+package ru.ivi.mapping;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import ru.ivi.mapping.value.VersionedObject;
+
+/**
+ * LRU cache of {@link Serializer#toBytes} results of {@link ru.ivi.mapping.value.UniqueObject}s by unique key,
+ * limited by the total size of cached arrays. By default only {@link VersionedObject}s are cached, so an object
+ * changed after serialization is never written as its old bytes. Unless validation is {@link Validation#NONE}, bytes
+ * are returned only for the instance they were written from, a fresh copy with the same key is serialized again.
+ */
+public class SerializedBytesCache {
+	
+	public static final long DEFAULT_MAX_BYTES = 4 * 1024 * 1024;
+	
+	public enum Validation {
+		/**
+		 * Bytes are returned for any object with the same unique key. Objects must not change after serialization
+		 * and copies with the same key must be equal, otherwise {@link Serializer#toBytes} returns old bytes.
+		 */
+		NONE,
+		/**
+		 * Only {@link VersionedObject}s are cached, bytes are returned while {@link VersionedObject#getContentVersion()} is the same.
+		 */
+		VERSION,
+		/**
+		 * Bytes are returned while {@link Object#hashCode()} of the object is the same, for objects with content-based hashCode.
+		 */
+		HASH_CODE
+	}
+	
+	private final LinkedHashMap<Object, Entry> mEntries = new LinkedHashMap<>(16, 0.75f, true);
+	private final long mMaxBytes;
+	private final Validation mValidation;
+	private long mBytes = 0;
+	private long mHitCount = 0;
+	private long mMissCount = 0;
+	private long mStaleCount = 0;
+	private long mEvictionCount = 0;
+	
+	public SerializedBytesCache() {
+		this(DEFAULT_MAX_BYTES, Validation.VERSION);
+	}
+	
+	public SerializedBytesCache(final long maxBytes, final Validation validation) {
+		mMaxBytes = maxBytes;
+		mValidation = validation;
+	}
+	
+	/**
+	 * @return cached bytes of the object or null, the array is shared and must not be changed
+	 */
+	public synchronized byte[] get(final Object key, final Object object) {
+		final Entry entry = mEntries.get(key);
+		if (entry == null) {
+			mMissCount++;
+			return null;
+		}
+		if (mValidation != Validation.NONE && (entry.mObject.get() != object || !isCacheable(object) || entry.mStamp != stampOf(object))) {
+			mStaleCount++;
+			remove(key);
+			return null;
+		}
+		mHitCount++;
+		return entry.mBytes;
+	}
+	
+	public synchronized void put(final Object key, final Object object, final byte[] bytes) {
+		if (bytes.length > mMaxBytes || !isCacheable(object)) {
+			return;
+		}
+		final Entry previous = mEntries.put(key, new Entry(bytes, object, stampOf(object)));
+		if (previous != null) {
+			mBytes -= previous.mBytes.length;
+		}
+		mBytes += bytes.length;
+		
+		final Iterator<Map.Entry<Object, Entry>> iterator = mEntries.entrySet().iterator();
+		while (mBytes > mMaxBytes && iterator.hasNext()) {
+			mBytes -= iterator.next().getValue().mBytes.length;
+			iterator.remove();
+			mEvictionCount++;
+		}
+	}
+	
+	/**
+	 * @param key {@link ru.ivi.mapping.value.UniqueObjectKey} of the object, see {@link ru.ivi.mapping.value.IUniqueFieldsMap#getUniqueObjectKey}
+	 */
+	public synchronized void invalidate(final Object key) {
+		remove(key);
+	}
+	
+	public synchronized void clear() {
+		mEntries.clear();
+		mBytes = 0;
+	}
+	
+	private void remove(final Object key) {
+		final Entry entry = mEntries.remove(key);
+		if (entry != null) {
+			mBytes -= entry.mBytes.length;
+		}
+	}
+	
+	private boolean isCacheable(final Object object) {
+		return mValidation != Validation.VERSION || object instanceof VersionedObject;
+	}
+	
+	private long stampOf(final Object object) {
+		switch (mValidation) {
+			case VERSION:
+				return ((VersionedObject) object).getContentVersion();
+			case HASH_CODE:
+				return object.hashCode();
+			default:
+				return 0;
+		}
+	}
+	
+	public synchronized int size() {
+		return mEntries.size();
+	}
+	
+	public synchronized long getBytes() {
+		return mBytes;
+	}
+	
+	public synchronized long getHitCount() {
+		return mHitCount;
+	}
+	
+	public synchronized long getMissCount() {
+		return mMissCount;
+	}
+	
+	/**
+	 * Count of entries dropped because the object changed since it was cached or another object came with its key.
+	 */
+	public synchronized long getStaleCount() {
+		return mStaleCount;
+	}
+	
+	public synchronized long getEvictionCount() {
+		return mEvictionCount;
+	}
+	
+	private static final class Entry {
+		
+		final byte[] mBytes;
+		// weak, so cached bytes do not keep their object in memory
+		final WeakReference<Object> mObject;
+		final long mStamp;
+		
+		Entry(final byte[] bytes, final Object object, final long stamp) {
+			mBytes = bytes;
+			mObject = new WeakReference<>(object);
+			mStamp = stamp;
+		}
+	}
+}
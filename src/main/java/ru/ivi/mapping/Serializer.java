@@ -3,37 +3,91 @@ package ru.ivi.mapping;
 import android.text.TextUtils;
 import android.util.SparseArray;
 
+import java.io.EOFException;
+import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
 import java.lang.reflect.Array;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 import ru.ivi.mapping.value.EnumTokensMap;
 import ru.ivi.mapping.value.IUniqueFieldsMap;
+import ru.ivi.mapping.value.IUniqueObjectsPool;
 import ru.ivi.mapping.value.IValueMap;
 import ru.ivi.mapping.value.UniqueFieldsMap;
 import ru.ivi.mapping.value.UniqueObject;
+import ru.ivi.mapping.value.UniqueObjectKey;
+import ru.ivi.mapping.value.UniqueObjectsPool;
 import ru.ivi.mapping.value.ValueMap;
 import ru.ivi.utils.Assert;
 import ru.ivi.utils.ReflectUtils;
 
 public final class Serializer extends ValueHelper {
 	
-	@SuppressWarnings("PublicStaticCollectionField")
-	public static final Map<Object, Object> UNIQUE_OBJECTS_POOL = new HashMap<>();
+	/**
+	 * Blobs without format header, readable by every library version.
+	 */
+	public static final int FORMAT_V1 = 0;
+	/**
+	 * Compact Latin-1/UTF-8 strings, see {@link Parcel#FORMAT_COMPACT_STRINGS}.
+	 */
+	public static final int FORMAT_V2 = Parcel.FORMAT_COMPACT_STRINGS;
+	/**
+	 * {@link #FORMAT_V2} plus zig-zag varint field values and array sizes, and varint object lengths,
+	 * see {@link Parcel#FORMAT_COMPACT_INTS}.
+	 */
+	public static final int FORMAT_V3 = Parcel.FORMAT_COMPACT_STRINGS | Parcel.FORMAT_COMPACT_INTS;
+	/**
+	 * Flag to combine with FORMAT_V* constants: {@link #arrayToBytes} writes offsets of all elements before them,
+	 * so {@link #readLazyArray} gets any element without touching the others.
+	 */
+	public static final int FORMAT_INDEXED_ARRAYS = 1 << 8;
+	/**
+	 * Flag to combine with FORMAT_V* constants: unique keys are written as values of unique fields
+	 * instead of concatenated strings, so reading a pooled object needs neither string building nor full decoding.
+	 */
+	public static final int FORMAT_STRUCTURED_KEYS = 1 << 9;
+	
 	private static final byte FALSE_FLAG = (byte) -21; //unique constants for simpler debug
 	private static final byte TRUE_FLAG = (byte) -22;
 	private static final byte NULL_FLAG = (byte) -23;
 	private static final byte NOT_NULL_FLAG = (byte) -24;
 	private static final int NULL_ARR_SIZE = -25;
-	private static final Map<String, byte[]> BYTES_POOL = new ConcurrentHashMap<>();
+	private static final int NO_UNIQUE_KEY = -1;
+	// first int of a blob with format header, legacy blobs start with a non negative position or count or NULL_ARR_SIZE
+	private static final int FORMAT_HEADER_MARK = 0xFA5E0000;
+	private static final int FORMAT_HEADER_MARK_MASK = 0xFFFF0000;
+	private static final int FORMAT_FLAGS_MASK = 0x0000FFFF;
+	private static final int KNOWN_FORMAT_FLAGS = Parcel.FORMAT_COMPACT_STRINGS | Parcel.FORMAT_COMPACT_INTS | FORMAT_INDEXED_ARRAYS | FORMAT_STRUCTURED_KEYS;
+	// first int of a stream written by write(OutputStream...) and writeArray(OutputStream...)
+	private static final int STREAM_OBJECT_MARK = 0xFA5F0000;
+	private static final int STREAM_ARRAY_MARK = 0xFA600000;
+	private static final int FRAME_LENGTH_SIZE = 4;
+	private static final int DEFAULT_MAX_FRAME_LENGTH = 64 * 1024 * 1024;
+	// stream files are mapped by windows of whole frames of at least this size, so files may be bigger than 2GB,
+	// a dropped window stays mapped until it is garbage collected
+	private static final int MAPPING_WINDOW_SIZE = 64 * 1024 * 1024;
+	// chunks per thread of parallel reads, so threads finished earlier take chunks of slower ones
+	private static final int PARALLEL_CHUNKS_PER_THREAD = 4;
 	private static final Map<Class<?>, SparseArray<SparseArray<VersionMigration>>> mVersionMigrationMap = new HashMap<>();
 	
 	public interface VersionMigration<T> {
 		
-		void read(final Parcel parcel, final T result) throws Exception;
+		void read(final ReadableParcel parcel, final T result) throws Exception;
 		
 		Class<?> getType();
 		
@@ -44,20 +98,110 @@ public final class Serializer extends ValueHelper {
 	
 	private static IUniqueFieldsMap sUniqueFieldsMap = null;
 	private static IValueMap sValueMap = null;
+	private static volatile IUniqueObjectsPool sUniqueObjectsPool = new UniqueObjectsPool();
+	private static volatile SerializedBytesCache sBytesCache = new SerializedBytesCache();
+	private static volatile int sFormat = FORMAT_V1;
+	private static volatile Executor sParallelReadExecutor = null;
+	private static volatile int sParallelReadThreshold = Integer.MAX_VALUE;
+	private static volatile int sMaxFrameLength = DEFAULT_MAX_FRAME_LENGTH;
 	
 	public static void setUniqueFieldsMap(final IUniqueFieldsMap uniqueFieldsMap) {
 		sUniqueFieldsMap = uniqueFieldsMap;
 	}
 	
+	/**
+	 * Replaces the pool of read {@link UniqueObject}s shared by Serializer and Jsoners, {@link UniqueObjectsPool} by default.
+	 */
+	public static void setUniqueObjectsPool(final IUniqueObjectsPool uniqueObjectsPool) {
+		assertNotNull(uniqueObjectsPool);
+		sUniqueObjectsPool = uniqueObjectsPool;
+	}
+	
+	public static IUniqueObjectsPool getUniqueObjectsPool() {
+		return sUniqueObjectsPool;
+	}
+	
+	/**
+	 * Replaces the cache of {@link #toBytes} results of {@link UniqueObject}s, {@link SerializedBytesCache} with
+	 * default budget and {@link SerializedBytesCache.Validation#VERSION} validation by default. The default caches
+	 * only {@link ru.ivi.mapping.value.VersionedObject}s, so models which do not implement it are serialized every time.
+	 * A cache with {@link SerializedBytesCache.Validation#NONE} returns old bytes for objects changed after serialization.
+	 */
+	public static void setBytesCache(final SerializedBytesCache bytesCache) {
+		assertNotNull(bytesCache);
+		sBytesCache = bytesCache;
+	}
+	
+	public static SerializedBytesCache getBytesCache() {
+		return sBytesCache;
+	}
+	
 	public static void clearObjectPool() {
-		UNIQUE_OBJECTS_POOL.clear();
-		BYTES_POOL.clear();
+		sUniqueObjectsPool.clear();
+		sBytesCache.clear();
 	}
 	
 	public static void setValueMap(final IValueMap valueMap) {
 		sValueMap = valueMap;
 	}
 	
+	/**
+	 * Format of blobs produced by {@link #toBytes} and {@link #arrayToBytes}, readers detect the format of every blob
+	 * by itself, so blobs written with any format stay readable.
+	 *
+	 * @param format one of FORMAT_V* constants
+	 */
+	public static void setFormat(final int format) {
+		assertTrue("unknown format " + format, (format & ~KNOWN_FORMAT_FLAGS) == 0);
+		if (sFormat != format) {
+			sBytesCache.clear();
+		}
+		sFormat = format;
+	}
+	
+	public static int getFormat() {
+		return sFormat;
+	}
+	
+	/**
+	 * Makes {@link #readArray(byte[], Class)} and {@link #readArray(File, Class)} decode arrays of at least
+	 * {@code minArraySize} elements by chunks on the executor, the calling thread decodes chunks too and waits for the rest.
+	 *
+	 * @param executor executor for chunks, null to always read sequentially
+	 */
+	public static void setParallelRead(final Executor executor, final int minArraySize) {
+		sParallelReadExecutor = executor;
+		sParallelReadThreshold = executor == null ? Integer.MAX_VALUE : Math.max(minArraySize, 2);
+	}
+	
+	/**
+	 * Limits the size of one object read from a stream, a longer frame fails the read with {@link IOException}
+	 * instead of allocating a buffer for a length read from a corrupt stream. 64MB by default.
+	 */
+	public static void setMaxFrameLength(final int maxFrameLength) {
+		sMaxFrameLength = maxFrameLength;
+	}
+	
+	private static void writeFormatHeader(final Parcel parcel, final int format) {
+		if (format != FORMAT_V1) {
+			parcel.writeInt(FORMAT_HEADER_MARK | format);
+		}
+		parcel.setFormat(format);
+	}
+	
+	private static void readFormatHeader(final ReadableParcel parcel) {
+		final int startPos = parcel.dataPosition();
+		final int header = parcel.readInt();
+		if ((header & FORMAT_HEADER_MARK_MASK) == FORMAT_HEADER_MARK) {
+			final int format = header & FORMAT_FLAGS_MASK;
+			assertTrue("unknown format " + format, (format & ~KNOWN_FORMAT_FLAGS) == 0);
+			parcel.setFormat(format);
+		} else {
+			parcel.setFormat(FORMAT_V1);
+			parcel.setDataPosition(startPos);
+		}
+	}
+	
 	public static void registerMigration(final VersionMigration migration) {
 		SparseArray<SparseArray<VersionMigration>> typeMigrations = mVersionMigrationMap.get(migration.getType());
 		//noinspection Java8MapApi
@@ -74,21 +218,67 @@ public final class Serializer extends ValueHelper {
 	}
 	
 	public static <T> T[] readArray(final byte[] data, final Class<T> type) {
-		if (data != null && data.length > 0) {
+		return data == null ? null : readArray(data, 0, data.length, type);
+	}
+	
+	public static <T> T[] readArray(final byte[] data, final int offset, final int length, final Class<T> type) {
+		if (data != null && length > 0) {
+			
+			final Parcel parcel = Parcel.obtain();
+			try {
+				
+				try {
+					parcel.unmarshall(data, offset, length);
+					parcel.setDataPosition(0);
+					readFormatHeader(parcel);
+				} catch (final Exception e) {
+					e.printStackTrace();
+					
+					return null;
+				}
+				
+				return readBlobArray(parcel, type);
+			} finally {
+				parcel.recycle();
+			}
+		}
+		
+		return null;
+	}
+	
+	public static <T> LazySerializedArray<T> readLazyArray(final byte[] data, final Class<T> type) {
+		return data == null ? null : readLazyArray(data, 0, data.length, type);
+	}
+	
+	/**
+	 * Returns view of the array blob which decodes elements on first access. Element offsets are taken from the index of
+	 * {@link #FORMAT_INDEXED_ARRAYS} blobs, other blobs are scanned once skipping every element by its length header.
+	 * The data must not be changed while the view is used.
+	 */
+	public static <T> LazySerializedArray<T> readLazyArray(final byte[] data, final int offset, final int length, final Class<T> type) {
+		assertNotNull(type);
+		
+		assertFalse(type.isEnum());
+		
+		if (data != null && length > 0) {
 			
 			final Parcel parcel = Parcel.obtain();
 			try {
 				
+				final int[] starts;
 				try {
-					parcel.unmarshall(data, 0, data.length);
+					parcel.unmarshall(data, offset, length);
 					parcel.setDataPosition(0);
+					readFormatHeader(parcel);
+					
+					starts = readElementStarts(parcel);
 				} catch (final Exception e) {
 					e.printStackTrace();
 					
 					return null;
 				}
 				
-				return readArray(parcel, type);
+				return starts == null ? null : new LazySerializedArray<>(data, offset, length, parcel.getFormat(), starts, type);
 			} finally {
 				parcel.recycle();
 			}
@@ -97,9 +287,191 @@ public final class Serializer extends ValueHelper {
 		return null;
 	}
 	
+	/**
+	 * Reads array size and positions of elements, the parcel is left after the array.
+	 *
+	 * @return null for null array
+	 */
+	private static int[] readElementStarts(final ReadableParcel parcel) {
+		final int[] starts;
+		if ((parcel.getFormat() & FORMAT_INDEXED_ARRAYS) != 0) {
+			final int count = parcel.readInt();
+			if (count == NULL_ARR_SIZE) {
+				return null;
+			}
+			starts = new int[count];
+			parcel.readIntArray(starts);
+			if (count > 0) {
+				parcel.setDataPosition(starts[count - 1]);
+				skipObject(parcel);
+			}
+		} else {
+			final int count = parcel.readCompactInt();
+			if (count == NULL_ARR_SIZE) {
+				return null;
+			}
+			starts = new int[count];
+			for (int i = 0; i < count; i++) {
+				starts[i] = parcel.dataPosition();
+				skipObject(parcel);
+			}
+		}
+		return starts;
+	}
+	
+	private static <T> T[] readBlobArray(final ReadableParcel parcel, final Class<T> type) {
+		final Executor executor = sParallelReadExecutor;
+		if (executor != null) {
+			final int startPos = parcel.dataPosition();
+			final int[] starts = readElementStarts(parcel);
+			if (starts == null) {
+				return null;
+			}
+			if (starts.length >= sParallelReadThreshold) {
+				final T[] array = createArray(type, starts.length);
+				readElementsParallel(parcel, type, starts, array, executor);
+				return array;
+			}
+			parcel.setDataPosition(startPos);
+		}
+		
+		if ((parcel.getFormat() & FORMAT_INDEXED_ARRAYS) != 0) {
+			final int count = parcel.readInt();
+			if (count == NULL_ARR_SIZE) {
+				return null;
+			}
+			
+			// elements follow the index in order
+			parcel.setDataPosition(parcel.dataPosition() + count * 4);
+			final T[] array = createArray(type, count);
+			for (int i = 0; i < count; i++) {
+				array[i] = read(parcel, type);
+			}
+			return array;
+		}
+		return readArray(parcel, type);
+	}
+	
+	private static <T> void readElementsParallel(final ReadableParcel parcel, final Class<T> type, final int[] starts, final T[] array, final Executor executor) {
+		runChunks(executor, starts.length, parallelChunkCount(starts.length), (chunk, from, to) -> {
+			final ReadableParcel chunkParcel = parcel.duplicateForRead();
+			try {
+				for (int i = from; i < to; i++) {
+					chunkParcel.setDataPosition(starts[i]);
+					array[i] = read(chunkParcel, type);
+				}
+			} finally {
+				chunkParcel.recycle();
+			}
+		});
+	}
+	
+	private interface ChunkTask {
+		
+		void run(int chunk, int from, int to);
+	}
+	
+	private static int parallelChunkCount(final int count) {
+		return Math.min(Runtime.getRuntime().availableProcessors() * PARALLEL_CHUNKS_PER_THREAD, count);
+	}
+	
+	private static int chunkSize(final int count, final int chunkCount) {
+		return (count + chunkCount - 1) / chunkCount;
+	}
+	
+	/**
+	 * Runs task for every chunk of {@code count} elements on the executor and the calling thread, returns when all are done.
+	 * Threads take next chunk when done with previous one, so chunks of different cost are balanced.
+	 * Only finished chunks are awaited, not submitted tasks: when the executor is busy, e.g. runs this very call,
+	 * the calling thread takes all chunks and tasks started later find none left.
+	 */
+	private static void runChunks(final Executor executor, final int count, final int chunkCount, final ChunkTask task) {
+		final int threads = Math.min(Runtime.getRuntime().availableProcessors(), chunkCount);
+		final int chunkSize = chunkSize(count, chunkCount);
+		final AtomicInteger nextChunk = new AtomicInteger();
+		final AtomicReference<Throwable> error = new AtomicReference<>();
+		final CountDownLatch done = new CountDownLatch(chunkCount);
+		
+		final Runnable worker = () -> {
+			for (int chunk = nextChunk.getAndIncrement(); chunk < chunkCount; chunk = nextChunk.getAndIncrement()) {
+				try {
+					// chunks left after an error are skipped, but still counted as finished
+					if (error.get() == null) {
+						task.run(chunk, chunk * chunkSize, Math.min(count, (chunk + 1) * chunkSize));
+					}
+				} catch (final Throwable e) {
+					error.compareAndSet(null, e);
+				} finally {
+					done.countDown();
+				}
+			}
+		};
+		
+		for (int i = 1; i < threads; i++) {
+			try {
+				executor.execute(worker);
+			} catch (final RejectedExecutionException e) {
+				// chunks of rejected worker are taken by the others
+				break;
+			}
+		}
+		worker.run();
+		
+		try {
+			done.await();
+		} catch (final InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new RuntimeException(e);
+		}
+		
+		final Throwable e = error.get();
+		if (e instanceof RuntimeException) {
+			throw (RuntimeException) e;
+		} else if (e instanceof Error) {
+			throw (Error) e;
+		} else if (e != null) {
+			throw new RuntimeException(e);
+		}
+	}
+	
+	/**
+	 * Element count and an index of element positions, back-patched as elements are written.
+	 */
+	private static void writeIndexedArray(final Parcel parcel, final Object[] objects, final Class<?> type) {
+		assertFalse(type.isEnum());
+		
+		final int length = objects.length;
+		parcel.writeInt(length);
+		final int indexStart = parcel.dataPosition();
+		for (int i = 0; i < length; i++) {
+			parcel.writeInt(0);
+		}
+		
+		for (int i = 0; i < length; i++) {
+			final int startPos = parcel.dataPosition();
+			parcel.setDataPosition(indexStart + i * 4);
+			parcel.writeInt(startPos);
+			parcel.setDataPosition(startPos);
+			write(parcel, objects[i], type);
+		}
+	}
+	
+	private static void skipObject(final ReadableParcel parcel) {
+		if ((parcel.getFormat() & Parcel.FORMAT_COMPACT_INTS) != 0) {
+			final int length = parcel.readVarInt();
+			parcel.setDataPosition(parcel.dataPosition() + length);
+		} else {
+			final int startPos = parcel.dataPosition();
+			final int endPos = parcel.readInt();
+			if (endPos > startPos) {
+				parcel.setDataPosition(endPos);
+			}
+		}
+	}
+	
 	public static void writeStringArray(final Parcel parcel, final String[] arr) {
 		final int size = arr == null ? NULL_ARR_SIZE : arr.length;
-		parcel.writeInt(size);
+		parcel.writeCompactInt(size);
 		if (arr != null) {
 			parcel.writeStringArray(arr);
 		}
@@ -107,7 +479,7 @@ public final class Serializer extends ValueHelper {
 	
 	public static void writeByteArray(final Parcel parcel, final byte[] arr) {
 		final int size = arr == null ? NULL_ARR_SIZE : arr.length;
-		parcel.writeInt(size);
+		parcel.writeCompactInt(size);
 		if (arr != null) {
 			parcel.writeByteArray(arr);
 		}
@@ -115,7 +487,7 @@ public final class Serializer extends ValueHelper {
 	
 	public static void writeIntArray(final Parcel parcel, final int[] arr) {
 		final int size = arr == null ? NULL_ARR_SIZE : arr.length;
-		parcel.writeInt(size);
+		parcel.writeCompactInt(size);
 		if (arr != null) {
 			parcel.writeIntArray(arr);
 		}
@@ -123,7 +495,7 @@ public final class Serializer extends ValueHelper {
 	
 	public static void writeCharArray(final Parcel parcel, final char[] arr) {
 		final int size = arr == null ? NULL_ARR_SIZE : arr.length;
-		parcel.writeInt(size);
+		parcel.writeCompactInt(size);
 		if (arr != null) {
 			parcel.writeCharArray(arr);
 		}
@@ -131,7 +503,7 @@ public final class Serializer extends ValueHelper {
 	
 	public static void writeLongArray(final Parcel parcel, final long[] arr) {
 		final int size = arr == null ? NULL_ARR_SIZE : arr.length;
-		parcel.writeInt(size);
+		parcel.writeCompactInt(size);
 		if (arr != null) {
 			parcel.writeLongArray(arr);
 		}
@@ -139,7 +511,7 @@ public final class Serializer extends ValueHelper {
 	
 	public static void writeBooleanArray(final Parcel parcel, final boolean[] arr) {
 		final int size = arr == null ? NULL_ARR_SIZE : arr.length;
-		parcel.writeInt(size);
+		parcel.writeCompactInt(size);
 		if (arr != null) {
 			parcel.writeBooleanArray(arr);
 		}
@@ -147,7 +519,7 @@ public final class Serializer extends ValueHelper {
 	
 	public static void writeFloatArray(final Parcel parcel, final float[] arr) {
 		final int size = arr == null ? NULL_ARR_SIZE : arr.length;
-		parcel.writeInt(size);
+		parcel.writeCompactInt(size);
 		if (arr != null) {
 			parcel.writeFloatArray(arr);
 		}
@@ -155,14 +527,14 @@ public final class Serializer extends ValueHelper {
 	
 	public static void writeDoubleArray(final Parcel parcel, final double[] arr) {
 		final int size = arr == null ? NULL_ARR_SIZE : arr.length;
-		parcel.writeInt(size);
+		parcel.writeCompactInt(size);
 		if (arr != null) {
 			parcel.writeDoubleArray(arr);
 		}
 	}
 	
-	public static String[] readStringArray(final Parcel parcel) {
-		final int size = parcel.readInt();
+	public static String[] readStringArray(final ReadableParcel parcel) {
+		final int size = parcel.readCompactInt();
 		if (size == NULL_ARR_SIZE) {
 			return null;
 		}
@@ -171,8 +543,8 @@ public final class Serializer extends ValueHelper {
 		return arr;
 	}
 	
-	public static byte[] readByteArray(final Parcel parcel) {
-		final int size = parcel.readInt();
+	public static byte[] readByteArray(final ReadableParcel parcel) {
+		final int size = parcel.readCompactInt();
 		if (size == NULL_ARR_SIZE) {
 			return null;
 		}
@@ -181,8 +553,8 @@ public final class Serializer extends ValueHelper {
 		return arr;
 	}
 	
-	public static int[] readIntArray(final Parcel parcel) {
-		final int size = parcel.readInt();
+	public static int[] readIntArray(final ReadableParcel parcel) {
+		final int size = parcel.readCompactInt();
 		if (size == NULL_ARR_SIZE) {
 			return null;
 		}
@@ -191,8 +563,8 @@ public final class Serializer extends ValueHelper {
 		return arr;
 	}
 	
-	public static char[] readCharArray(final Parcel parcel) {
-		final int size = parcel.readInt();
+	public static char[] readCharArray(final ReadableParcel parcel) {
+		final int size = parcel.readCompactInt();
 		if (size == NULL_ARR_SIZE) {
 			return null;
 		}
@@ -201,8 +573,8 @@ public final class Serializer extends ValueHelper {
 		return arr;
 	}
 	
-	public static long[] readLongArray(final Parcel parcel) {
-		final int size = parcel.readInt();
+	public static long[] readLongArray(final ReadableParcel parcel) {
+		final int size = parcel.readCompactInt();
 		if (size == NULL_ARR_SIZE) {
 			return null;
 		}
@@ -211,8 +583,8 @@ public final class Serializer extends ValueHelper {
 		return arr;
 	}
 	
-	public static boolean[] readBooleanArray(final Parcel parcel) {
-		final int size = parcel.readInt();
+	public static boolean[] readBooleanArray(final ReadableParcel parcel) {
+		final int size = parcel.readCompactInt();
 		if (size == NULL_ARR_SIZE) {
 			return null;
 		}
@@ -221,8 +593,8 @@ public final class Serializer extends ValueHelper {
 		return arr;
 	}
 	
-	public static float[] readFloatArray(final Parcel parcel) {
-		final int size = parcel.readInt();
+	public static float[] readFloatArray(final ReadableParcel parcel) {
+		final int size = parcel.readCompactInt();
 		if (size == NULL_ARR_SIZE) {
 			return null;
 		}
@@ -231,8 +603,8 @@ public final class Serializer extends ValueHelper {
 		return arr;
 	}
 	
-	public static double[] readDoubleArray(final Parcel parcel) {
-		final int size = parcel.readInt();
+	public static double[] readDoubleArray(final ReadableParcel parcel) {
+		final int size = parcel.readCompactInt();
 		if (size == NULL_ARR_SIZE) {
 			return null;
 		}
@@ -247,15 +619,32 @@ public final class Serializer extends ValueHelper {
 		
 		final ObjectMap<String, IFieldInfo> objectMap = sValueMap.getObjectMap(cls);
 		if (objectMap != null || cls == Object.class) {
+			final boolean lengthPrefixed = (parcel.getFormat() & Parcel.FORMAT_COMPACT_INTS) != 0;
+			if (lengthPrefixed && (object == null || objectMap == null)) {
+				// empty block, its length needs no reserved prefix
+				parcel.writeVarInt(0);
+				return;
+			}
 			final int startPos = parcel.dataPosition();
 			
 			assertTrue(startPos >= 0);
 			
-			parcel.writeInt(startPos);
+			final int dataStart;
+			if (lengthPrefixed) {
+				dataStart = parcel.beginLengthPrefixed();
+			} else {
+				dataStart = -1;
+				parcel.writeInt(startPos);
+				parcel.addRelocation(startPos);
+			}
 			
 			if (object != null && objectMap != null) {
 				try {
-					parcel.writeString(sUniqueFieldsMap.getUniqueKey(object, cls));
+					if ((parcel.getFormat() & FORMAT_STRUCTURED_KEYS) != 0) {
+						writeUniqueKey(parcel, object, cls);
+					} else {
+						parcel.writeString(sUniqueFieldsMap.getUniqueKey(object, cls));
+					}
 					
 					if (inType == Object.class) {
 						parcel.writeString(cls.getName());
@@ -263,13 +652,7 @@ public final class Serializer extends ValueHelper {
 					
 					parcel.writeInt(objectMap.getCurrentVersionSum());
 					
-					final IFieldInfo[] objFields = objectMap.getSerializerFields();
-					
-					final int size = objFields.length;
-					
-					for (int i = 0; i < size; i++) {
-						objFields[i].write(object, parcel);
-					}
+					objectMap.writeFields(object, parcel);
 					
 					if (object instanceof CustomSerializable) {
 						final SerializableWriter writer = new SerializableWriter(parcel);
@@ -280,11 +663,13 @@ public final class Serializer extends ValueHelper {
 						
 						writer.endWrite();
 					}
-					final int endPos = parcel.dataPosition();
-					parcel.setDataPosition(startPos);
-					parcel.writeInt(endPos);
-					parcel.setDataPosition(endPos);
-					assertTrue(startPos < endPos);
+					if (!lengthPrefixed) {
+						final int endPos = parcel.dataPosition();
+						parcel.setDataPosition(startPos);
+						parcel.writeInt(endPos);
+						parcel.setDataPosition(endPos);
+						assertTrue(startPos < endPos);
+					}
 					
 				} catch (final Exception e) {
 					
@@ -299,32 +684,56 @@ public final class Serializer extends ValueHelper {
 					assertTrue(message + Arrays.toString(e.getStackTrace()), false);
 				}
 			}
+			if (lengthPrefixed) {
+				parcel.endLengthPrefixed(dataStart);
+			}
 		}
 	}
 	
-	public static <T> T read(final Parcel parcel, Class<T> type) {
+	public static <T> T read(final ReadableParcel parcel, Class<T> type) {
 		final int startPos = parcel.dataPosition();
-		final int endPos = parcel.readInt();
-		
-		assertTrue(startPos + " <= " + endPos, startPos <= endPos);
-		
-		if (startPos >= endPos) {
-			return null;
+		final int endPos;
+		if ((parcel.getFormat() & Parcel.FORMAT_COMPACT_INTS) != 0) {
+			final int length = parcel.readVarInt();
+			if (length == 0) {
+				return null;
+			}
+			endPos = parcel.dataPosition() + length;
+		} else {
+			endPos = parcel.readInt();
+			
+			assertTrue(startPos + " <= " + endPos, startPos <= endPos);
+			
+			if (startPos >= endPos) {
+				return null;
+			}
 		}
 		
 		try {
 			
-			final String uniqueKeyName = parcel.readString();
-			
 			T result;
 			
-			if (!TextUtils.isEmpty(uniqueKeyName)) {
-				result = (T) UNIQUE_OBJECTS_POOL.get(uniqueKeyName);
-				if (result != null) {
-					
-					final String objUniqueKeyName = sUniqueFieldsMap.getUniqueKey(result, result.getClass());
-					
-					if (uniqueKeyName.equals(objUniqueKeyName)) {
+			final Object uniqueKey;
+			if ((parcel.getFormat() & FORMAT_STRUCTURED_KEYS) != 0) {
+				final UniqueObjectKey uniqueObjectKey = readUniqueKey(parcel);
+				uniqueKey = uniqueObjectKey;
+				
+				if (uniqueObjectKey != null) {
+					result = (T) sUniqueObjectsPool.get(uniqueObjectKey);
+					if (result != null && isPooledFor(result, uniqueObjectKey)) {
+						
+						parcel.setDataPosition(endPos);
+						
+						return result;
+					}
+				}
+			} else {
+				final String uniqueKeyName = parcel.readString();
+				uniqueKey = TextUtils.isEmpty(uniqueKeyName) ? null : uniqueKeyName;
+				
+				if (uniqueKey != null) {
+					result = (T) sUniqueObjectsPool.get(uniqueKeyName);
+					if (result != null && isPooledFor(result, uniqueKeyName)) {
 						
 						parcel.setDataPosition(endPos);
 						
@@ -357,13 +766,7 @@ public final class Serializer extends ValueHelper {
 				throw new VersionChangedException(type + ": " + readVersion + "!=" + currentVersion);
 			}
 			
-			final IFieldInfo[] objFields = objectMap.getSerializerFields();
-			
-			final int size = objFields.length;
-			
-			for (int i = 0; i < size; i++) {
-				objFields[i].read(result, parcel);
-			}
+			objectMap.readFields(result, parcel);
 			
 			if (result instanceof CustomSerializable) {
 				final SerializableReader reader = new SerializableReader(parcel);
@@ -384,12 +787,19 @@ public final class Serializer extends ValueHelper {
 				((CustomAfterRead) result).afterRead();
 			}
 			
-			if (!TextUtils.isEmpty(uniqueKeyName)) {
-				UNIQUE_OBJECTS_POOL.put(uniqueKeyName, result);
-			}
-			
 			assertEquals(endPos, parcel.dataPosition());
 			
+			if (uniqueKey != null) {
+				// another thread may have decoded the same object meanwhile, its instance wins
+				final Object pooled = sUniqueObjectsPool.putIfAbsent(uniqueKey, result);
+				if (pooled != null) {
+					if (isPooledFor(pooled, uniqueKey)) {
+						return (T) pooled;
+					}
+					sUniqueObjectsPool.put(uniqueKey, result);
+				}
+			}
+			
 			return result;
 		} catch (final Exception e) {
 			e.printStackTrace();
@@ -406,16 +816,78 @@ public final class Serializer extends ValueHelper {
 		return null;
 	}
 	
+	/**
+	 * Key of the object in {@link IUniqueObjectsPool} and {@link SerializedBytesCache}: {@link UniqueObjectKey} when
+	 * the format has {@link #FORMAT_STRUCTURED_KEYS}, otherwise string key which is written to blobs of such formats.
+	 *
+	 * @param format format of the data the object is written to or read from
+	 * @return null if the class has no unique fields
+	 */
+	static Object getPoolKey(final IUniqueFieldsMap uniqueFieldsMap, final Object object, final Class<?> cls, final int format) {
+		if ((format & FORMAT_STRUCTURED_KEYS) != 0) {
+			return uniqueFieldsMap.getUniqueObjectKey(object, cls);
+		}
+		final String key = uniqueFieldsMap.getUniqueKey(object, cls);
+		return TextUtils.isEmpty(key) ? null : key;
+	}
+	
+	private static void writeUniqueKey(final Parcel parcel, final Object object, final Class<?> cls) {
+		final UniqueObjectKey.Builder builder = UniqueObjectKey.Builder.forCurrentThread();
+		if (!sUniqueFieldsMap.fillUniqueKey(object, cls, builder)) {
+			parcel.writeCompactInt(NO_UNIQUE_KEY);
+			return;
+		}
+		
+		final int longsCount = builder.getLongsCount();
+		parcel.writeCompactInt(longsCount);
+		for (int i = 0; i < longsCount; i++) {
+			parcel.writeCompactLong(builder.getLong(i));
+		}
+		final int stringsCount = builder.getStringsCount();
+		parcel.writeCompactInt(stringsCount);
+		for (int i = 0; i < stringsCount; i++) {
+			parcel.writeString(builder.getString(i));
+		}
+	}
+	
+	private static UniqueObjectKey readUniqueKey(final ReadableParcel parcel) {
+		final int longsCount = parcel.readCompactInt();
+		if (longsCount == NO_UNIQUE_KEY) {
+			return null;
+		}
+		
+		final long[] longs = new long[longsCount];
+		for (int i = 0; i < longsCount; i++) {
+			longs[i] = parcel.readCompactLong();
+		}
+		final String[] strings = new String[parcel.readCompactInt()];
+		for (int i = 0; i < strings.length; i++) {
+			strings[i] = parcel.readString();
+		}
+		return new UniqueObjectKey(longs, strings);
+	}
+	
+	/**
+	 * Checks that a pooled object still has the key it was pooled by, objects may be changed after reading.
+	 */
+	private static boolean isPooledFor(final Object pooled, final Object uniqueKey) {
+		if (uniqueKey instanceof UniqueObjectKey) {
+			final UniqueObjectKey.Builder objUniqueKey = UniqueObjectKey.Builder.forCurrentThread();
+			return sUniqueFieldsMap.fillUniqueKey(pooled, pooled.getClass(), objUniqueKey) && objUniqueKey.matches((UniqueObjectKey) uniqueKey);
+		}
+		return uniqueKey.equals(sUniqueFieldsMap.getUniqueKey(pooled, pooled.getClass()));
+	}
+	
 	public static void writeArray(final Parcel parcel, final Object[] objects, final Class<?> type) {
 		if (objects == null) {
-			parcel.writeInt(NULL_ARR_SIZE);
+			parcel.writeCompactInt(NULL_ARR_SIZE);
 		} else {
 			
 			assertFalse(type.isEnum());
 			
 			final int length = objects.length;
 			
-			parcel.writeInt(length);
+			parcel.writeCompactInt(length);
 			
 			for (int i = 0; i < length; i++) {
 				write(parcel, objects[i], type);
@@ -424,16 +896,26 @@ public final class Serializer extends ValueHelper {
 	}
 	
 	@SuppressWarnings("unchecked")
-	public static <T> T[] readArray(final Parcel parcel, final Class<T> type) {
+	public static <T> T[] readArray(final ReadableParcel parcel, final Class<T> type) {
 		assertNotNull(type);
 		
 		assertFalse(type.isEnum());
 		
-		final int count = parcel.readInt();
+		final int count = parcel.readCompactInt();
 		if (count == NULL_ARR_SIZE) {
 			return null;
 		}
 		
+		final T[] array = createArray(type, count);
+		for (int i = 0; i < count; i++) {
+			array[i] = read(parcel, type);
+		}
+		
+		return array;
+	}
+	
+	@SuppressWarnings("unchecked")
+	private static <T> T[] createArray(final Class<T> type, final int count) {
 		final T[] array;
 		if (type == Object.class) {
 			array = (T[]) new Object[count];
@@ -452,11 +934,6 @@ public final class Serializer extends ValueHelper {
 				}
 			}
 		}
-		
-		for (int i = 0; i < count; i++) {
-			array[i] = read(parcel, type);
-		}
-		
 		return array;
 	}
 	
@@ -464,7 +941,7 @@ public final class Serializer extends ValueHelper {
 		parcel.writeByte(obj == null ? NULL_FLAG : (byte) obj.ordinal());
 	}
 	
-	public static <E extends Enum<E>> E readEnum(final Parcel parcel, final Class<E> type) {
+	public static <E extends Enum<E>> E readEnum(final ReadableParcel parcel, final Class<E> type) {
 		final byte ordinal = parcel.readByte();
 		if (ordinal == NULL_FLAG) {
 			return null;
@@ -473,8 +950,8 @@ public final class Serializer extends ValueHelper {
 		return type.getEnumConstants()[ordinal];
 	}
 	
-	public static <E extends Enum<E>> E[] readEnumArray(final Parcel parcel, final Class<E> type) {
-		final int length = parcel.readInt();
+	public static <E extends Enum<E>> E[] readEnumArray(final ReadableParcel parcel, final Class<E> type) {
+		final int length = parcel.readCompactInt();
 		
 		@SuppressWarnings("unchecked")        final E[] arr = (E[]) Array.newInstance(type, length == NULL_ARR_SIZE ? 0 : length);
 		
@@ -492,7 +969,7 @@ public final class Serializer extends ValueHelper {
 	
 	public static <E extends Enum<E>> void writeEnumArray(final Parcel parcel, final E[] obj, final Class<E> type) {
 		final int length = obj == null ? NULL_ARR_SIZE : obj.length;
-		parcel.writeInt(length);
+		parcel.writeCompactInt(length);
 		if (obj != null) {
 			final byte[] values = new byte[length];
 			for (int i = 0; i < length; i++) {
@@ -507,12 +984,12 @@ public final class Serializer extends ValueHelper {
 		if (object == null) {
 			return null;
 		}
-		String key = null;
+		final int format = sFormat;
+		Object key = null;
 		if (object instanceof UniqueObject) {
-			key = sUniqueFieldsMap.getUniqueKey(object, type);
-			if (!TextUtils.isEmpty(key)) {
-				//noinspection unchecked
-				final byte[] result = BYTES_POOL.get(key);
+			key = getPoolKey(sUniqueFieldsMap, object, type, format);
+			if (key != null) {
+				final byte[] result = sBytesCache.get(key, object);
 				if (result != null) {
 					return result;
 				}
@@ -524,12 +1001,14 @@ public final class Serializer extends ValueHelper {
 		try {
 			parcel = Parcel.obtain();
 			
+			writeFormatHeader(parcel, format);
+			
 			write(parcel, object, type);
 			
 			final byte[] marshall = parcel.marshall();
-			if (!TextUtils.isEmpty(key)) {
-				BYTES_POOL.put(key, marshall);
-				UNIQUE_OBJECTS_POOL.put(key, object);
+			if (key != null) {
+				sBytesCache.put(key, object, marshall);
+				sUniqueObjectsPool.put(key, object);
 			}
 			return marshall;
 		} finally {
@@ -547,7 +1026,14 @@ public final class Serializer extends ValueHelper {
 			if (objects != null) {
 				parcel = Parcel.obtain();
 				
-				writeArray(parcel, objects, type);
+				final int format = sFormat;
+				writeFormatHeader(parcel, format);
+				
+				if ((format & FORMAT_INDEXED_ARRAYS) != 0) {
+					writeIndexedArray(parcel, objects, type);
+				} else {
+					writeArray(parcel, objects, type);
+				}
 				
 				return parcel.marshall();
 			} else {
@@ -560,16 +1046,103 @@ public final class Serializer extends ValueHelper {
 		}
 	}
 	
+	/**
+	 * Same bytes as {@link #arrayToBytes}, chunks of elements are serialized to separate parcels on the executor
+	 * and the calling thread, then copied to the result with positions shifted to their final place.
+	 */
+	public static <T> byte[] arrayToBytesParallel(final T[] objects, final Class<?> type, final Executor executor) {
+		if (objects == null) {
+			return null;
+		}
+		final int count = objects.length;
+		final int chunkCount = parallelChunkCount(count);
+		if (executor == null || chunkCount < 2) {
+			return arrayToBytes(objects, type);
+		}
+		
+		assertFalse(type.isEnum());
+		
+		final int format = sFormat;
+		final boolean indexed = (format & FORMAT_INDEXED_ARRAYS) != 0;
+		final int[] starts = indexed ? new int[count] : null;
+		final Parcel[] chunks = new Parcel[chunkCount];
+		final Parcel parcel = Parcel.obtain();
+		try {
+			runChunks(executor, count, chunkCount, (chunk, from, to) -> {
+				final Parcel chunkParcel = Parcel.obtain();
+				chunks[chunk] = chunkParcel;
+				chunkParcel.setFormat(format);
+				chunkParcel.trackRelocations();
+				for (int i = from; i < to; i++) {
+					if (starts != null) {
+						starts[i] = chunkParcel.dataPosition();
+					}
+					write(chunkParcel, objects[i], type);
+				}
+			});
+			
+			writeFormatHeader(parcel, format);
+			final int indexStart;
+			if (indexed) {
+				parcel.writeInt(count);
+				indexStart = parcel.dataPosition();
+				for (int i = 0; i < count; i++) {
+					parcel.writeInt(0);
+				}
+			} else {
+				indexStart = -1;
+				parcel.writeCompactInt(count);
+			}
+			
+			final int[] bases = new int[chunkCount];
+			long size = parcel.dataPosition();
+			for (int i = 0; i < chunkCount; i++) {
+				bases[i] = (int) size;
+				size += chunks[i].dataPosition();
+			}
+			if (size > Integer.MAX_VALUE) {
+				throw new OutOfMemoryError("array blob size " + size);
+			}
+			
+			if (indexed) {
+				final int chunkSize = chunkSize(count, chunkCount);
+				parcel.setDataPosition(indexStart);
+				for (int i = 0; i < count; i++) {
+					parcel.writeInt(bases[i / chunkSize] + starts[i]);
+				}
+			}
+			
+			final byte[] result = new byte[(int) size];
+			parcel.copyTo(result, 0);
+			for (int i = 0; i < chunkCount; i++) {
+				chunks[i].copyTo(result, bases[i]);
+			}
+			return result;
+		} finally {
+			parcel.recycle();
+			for (final Parcel chunkParcel : chunks) {
+				if (chunkParcel != null) {
+					chunkParcel.recycle();
+				}
+			}
+		}
+	}
+	
 	public static <T> T read(final byte[] data, final Class<T> type) {
-		if (data != null && data.length > 0) {
+		return data == null ? null : read(data, 0, data.length, type);
+	}
+	
+	public static <T> T read(final byte[] data, final int offset, final int length, final Class<T> type) {
+		if (data != null && length > 0) {
 			Parcel parcel = null;
 			
 			try {
 				parcel = Parcel.obtain();
 				
 				try {
-					parcel.unmarshall(data, 0, data.length);
+					parcel.unmarshall(data, offset, length);
 					parcel.setDataPosition(0);
+					readFormatHeader(parcel);
 				} catch (final Exception e) {
 					e.printStackTrace();
 					
@@ -587,6 +1160,238 @@ public final class Serializer extends ValueHelper {
 		return null;
 	}
 	
+	/**
+	 * Writes the object to the stream as one length-prefixed frame. The whole object is serialized to memory first,
+	 * use {@link #writeArray(OutputStream, Object[], Class)} to stream big data element by element.
+	 * The stream is not closed. Read it back with {@link #read(InputStream, Class)}.
+	 */
+	public static <T> void write(final OutputStream out, final T object, final Class<?> type) throws IOException {
+		final Parcel parcel = Parcel.obtain();
+		try {
+			final int format = sFormat;
+			writeStreamHeader(out, parcel, STREAM_OBJECT_MARK | format);
+			writeFrame(out, parcel, format, object, type);
+		} finally {
+			parcel.recycle();
+		}
+	}
+	
+	public static <T> void write(final WritableByteChannel channel, final T object, final Class<?> type) throws IOException {
+		write(Channels.newOutputStream(channel), object, type);
+	}
+	
+	/**
+	 * Writes the array to the stream element by element, every element is a separate length-prefixed frame,
+	 * so memory use is bounded by the biggest element rather than the whole array.
+	 * The stream is not closed. Read it back with {@link #readArray(InputStream, Class)}.
+	 */
+	public static void writeArray(final OutputStream out, final Object[] objects, final Class<?> type) throws IOException {
+		assertFalse(type.isEnum());
+		
+		final Parcel parcel = Parcel.obtain();
+		try {
+			final int format = sFormat;
+			parcel.writeInt(STREAM_ARRAY_MARK | format);
+			parcel.writeInt(objects == null ? NULL_ARR_SIZE : objects.length);
+			parcel.writeTo(out);
+			if (objects != null) {
+				for (final Object object : objects) {
+					writeFrame(out, parcel, format, object, type);
+				}
+			}
+		} finally {
+			parcel.recycle();
+		}
+	}
+	
+	public static void writeArray(final WritableByteChannel channel, final Object[] objects, final Class<?> type) throws IOException {
+		writeArray(Channels.newOutputStream(channel), objects, type);
+	}
+	
+	public static <T> T read(final InputStream in, final Class<T> type) throws IOException {
+		final Parcel parcel = Parcel.obtain();
+		try {
+			final int format = readStreamHeader(in, parcel, STREAM_OBJECT_MARK);
+			return readFrame(in, parcel, format, type);
+		} finally {
+			parcel.recycle();
+		}
+	}
+	
+	public static <T> T read(final ReadableByteChannel channel, final Class<T> type) throws IOException {
+		return read(Channels.newInputStream(channel), type);
+	}
+	
+	public static <T> T[] readArray(final InputStream in, final Class<T> type) throws IOException {
+		assertNotNull(type);
+		
+		assertFalse(type.isEnum());
+		
+		final Parcel parcel = Parcel.obtain();
+		try {
+			final int format = readStreamHeader(in, parcel, STREAM_ARRAY_MARK);
+			final int count = readStreamInt(in, parcel);
+			if (count == NULL_ARR_SIZE) {
+				return null;
+			}
+			if (count < 0) {
+				throw new IOException("wrong array size " + count);
+			}
+			
+			final T[] array = createArray(type, count);
+			for (int i = 0; i < count; i++) {
+				array[i] = readFrame(in, parcel, format, type);
+			}
+			
+			return array;
+		} finally {
+			parcel.recycle();
+		}
+	}
+	
+	public static <T> T[] readArray(final ReadableByteChannel channel, final Class<T> type) throws IOException {
+		return readArray(Channels.newInputStream(channel), type);
+	}
+	
+	/**
+	 * Reads array from a file written either as {@link #arrayToBytes} blob or by {@link #writeArray(OutputStream, Object[], Class)},
+	 * the file is memory-mapped and decoded with {@link MappedParcel}, so its bytes are never copied to the heap.
+	 * Stream files are mapped by windows of whole frames and may be bigger than 2GB.
+	 */
+	public static <T> T[] readArray(final File file, final Class<T> type) throws IOException {
+		assertNotNull(type);
+		
+		try (RandomAccessFile randomAccessFile = new RandomAccessFile(file, "r")) {
+			final long size = randomAccessFile.length();
+			if (size == 0) {
+				return null;
+			}
+			
+			if (size >= FRAME_LENGTH_SIZE) {
+				final int header = randomAccessFile.readInt();
+				if ((header & FORMAT_HEADER_MARK_MASK) == STREAM_ARRAY_MARK) {
+					return readMappedFrames(randomAccessFile, size, header & FORMAT_FLAGS_MASK, type);
+				}
+			}
+			
+			if (size > Integer.MAX_VALUE) {
+				throw new IOException("not a serialized array stream, size=" + size);
+			}
+			final MappedParcel parcel = new MappedParcel(randomAccessFile.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, size));
+			try {
+				readFormatHeader(parcel);
+				return readBlobArray(parcel, type);
+			} finally {
+				parcel.recycle();
+			}
+		}
+	}
+	
+	private static <T> T[] readMappedFrames(final RandomAccessFile file, final long size, final int format, final Class<T> type) throws IOException {
+		if ((format & ~KNOWN_FORMAT_FLAGS) != 0) {
+			throw new IOException("unknown format " + format);
+		}
+		final int count = file.readInt();
+		if (count == NULL_ARR_SIZE) {
+			return null;
+		}
+		if (count < 0) {
+			throw new IOException("wrong array size " + count);
+		}
+		
+		final FileChannel channel = file.getChannel();
+		final T[] array = createArray(type, count);
+		final MappedParcel parcel = new MappedParcel(ByteBuffer.allocate(0));
+		parcel.setFormat(format);
+		ByteBuffer window = null;
+		long windowStart = 0;
+		long offset = FRAME_LENGTH_SIZE * 2;
+		try {
+			for (int i = 0; i < count; i++) {
+				final int length;
+				if (window != null && offset + FRAME_LENGTH_SIZE <= windowStart + window.capacity()) {
+					length = window.getInt((int) (offset - windowStart));
+				} else {
+					file.seek(offset);
+					length = file.readInt();
+				}
+				final long frameEnd = offset + FRAME_LENGTH_SIZE + length;
+				if (length < 0 || frameEnd > size) {
+					throw new EOFException("frame " + i + " at " + offset + " length=" + length + " size=" + size);
+				}
+				if (window == null || frameEnd > windowStart + window.capacity()) {
+					// drop the previous window first, so FileChannel.map may reclaim it when address space runs out
+					window = null;
+					parcel.recycle();
+					windowStart = offset;
+					window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, Math.min(size - offset, Math.max(frameEnd - offset, MAPPING_WINDOW_SIZE)));
+				}
+				window.limit((int) (frameEnd - windowStart));
+				window.position((int) (offset - windowStart));
+				parcel.setBuffer(window);
+				window.clear();
+				parcel.setDataPosition(FRAME_LENGTH_SIZE);
+				array[i] = read(parcel, type);
+				offset = frameEnd;
+			}
+		} finally {
+			parcel.recycle();
+		}
+		
+		return array;
+	}
+	
+	private static void writeStreamHeader(final OutputStream out, final Parcel parcel, final int header) throws IOException {
+		parcel.setDataPosition(0);
+		parcel.writeInt(header);
+		parcel.writeTo(out);
+	}
+	
+	/**
+	 * Frame is the length of the following data and the object serialized with positions counted from the frame start.
+	 */
+	private static void writeFrame(final OutputStream out, final Parcel parcel, final int format, final Object object, final Class<?> type) throws IOException {
+		parcel.setDataPosition(0);
+		parcel.setFormat(format);
+		parcel.writeInt(0);
+		write(parcel, object, type);
+		final int end = parcel.dataPosition();
+		parcel.setDataPosition(0);
+		parcel.writeInt(end - FRAME_LENGTH_SIZE);
+		parcel.setDataPosition(end);
+		parcel.writeTo(out);
+	}
+	
+	private static int readStreamHeader(final InputStream in, final Parcel parcel, final int mark) throws IOException {
+		final int header = readStreamInt(in, parcel);
+		if ((header & FORMAT_HEADER_MARK_MASK) != mark) {
+			throw new IOException("not a serialized " + (mark == STREAM_ARRAY_MARK ? "array" : "object") + " stream, header=" + Integer.toHexString(header));
+		}
+		final int format = header & FORMAT_FLAGS_MASK;
+		if ((format & ~KNOWN_FORMAT_FLAGS) != 0) {
+			throw new IOException("unknown format " + format);
+		}
+		return format;
+	}
+	
+	private static int readStreamInt(final InputStream in, final Parcel parcel) throws IOException {
+		parcel.setDataPosition(0);
+		parcel.readFrom(in, FRAME_LENGTH_SIZE);
+		parcel.setDataPosition(0);
+		return parcel.readInt();
+	}
+	
+	private static <T> T readFrame(final InputStream in, final Parcel parcel, final int format, final Class<T> type) throws IOException {
+		final int length = readStreamInt(in, parcel);
+		if (length < 0 || length > sMaxFrameLength) {
+			throw new IOException("wrong frame length " + length + ", max=" + sMaxFrameLength);
+		}
+		parcel.readFrom(in, length);
+		parcel.setDataPosition(FRAME_LENGTH_SIZE);
+		parcel.setFormat(format);
+		return read(parcel, type);
+	}
+	
 	public static void initialize() {
 		try {
 			//noinspection unchecked
@@ -617,7 +1422,7 @@ public final class Serializer extends ValueHelper {
 		}
 	}
 	
-	public static boolean readBoolean(final Parcel parcel) {
+	public static boolean readBoolean(final ReadableParcel parcel) {
 		return parcel.readByte() == TRUE_FLAG;
 	}
 	
@@ -625,7 +1430,7 @@ public final class Serializer extends ValueHelper {
 		parcel.writeByte(bool ? TRUE_FLAG : FALSE_FLAG);
 	}
 	
-	public static boolean readIsNull(final Parcel parcel) {
+	public static boolean readIsNull(final ReadableParcel parcel) {
 		return parcel.readByte() == NULL_FLAG;
 	}
 	
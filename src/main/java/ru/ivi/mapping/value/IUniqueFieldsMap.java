@@ -8,4 +8,23 @@ public interface IUniqueFieldsMap {
 	<T> String getUniqueKey(final T object, final Class classType);
 
 	<T> void addUniqueKey(final Class<T> classType, final UniqueKey<T> uniqueKey);
+
+	/**
+	 * @return false if the class has no unique fields, the builder is reset anyway
+	 */
+	default <T> boolean fillUniqueKey(final T object, final Class classType, final UniqueObjectKey.Builder builder) {
+		builder.reset();
+		final String key = getUniqueKey(object, classType);
+		if (key == null || key.isEmpty()) {
+			return false;
+		}
+		builder.add(key);
+		return true;
+	}
+
+	@Nullable
+	default <T> UniqueObjectKey getUniqueObjectKey(final T object, final Class classType) {
+		final UniqueObjectKey.Builder builder = new UniqueObjectKey.Builder();
+		return fillUniqueKey(object, classType, builder) ? builder.build() : null;
+	}
 }
@@ -0,0 +1,37 @@
+package ru.ivi.mapping.value;
+
+/**
+ * Cache of decoded {@link UniqueObject}s by unique key, so equal objects read many times share one instance.
+ * Implementations are called from any thread.
+ */
+public interface IUniqueObjectsPool {
+	
+	Object get(final Object key);
+	
+	void put(final Object key, final Object value);
+	
+	/**
+	 * Puts the value unless an object is kept for the key already.
+	 *
+	 * @return the object kept for the key, null when the value was put
+	 */
+	default Object putIfAbsent(final Object key, final Object value) {
+		final Object current = get(key);
+		if (current == null) {
+			put(key, value);
+		}
+		return current;
+	}
+	
+	void remove(final Object key);
+	
+	void clear();
+	
+	int size();
+	
+	long getHitCount();
+	
+	long getMissCount();
+	
+	long getEvictionCount();
+}
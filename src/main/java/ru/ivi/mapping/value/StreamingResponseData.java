@@ -0,0 +1,84 @@
+package ru.ivi.mapping.value;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+import ru.ivi.utils.TeeInputStream;
+
+/**
+ * Response which body is parsed while it is downloaded, see {@link ru.ivi.mapping.JacksonJsoner#read(StreamingResponseData, Class)}.
+ * Unlike {@link ResponseData} the body is not buffered, only its first bytes are kept for error messages.
+ */
+public final class StreamingResponseData implements Closeable {
+	
+	public static final int DEFAULT_TEE_LIMIT = 1024;
+	
+	private final InputStream mInputStream;
+	private final TeeInputStream mTee;
+	private final String mUrl;
+	private final String mErrMsg;
+	
+	public StreamingResponseData(final InputStream inputStream, final String url) {
+		this(inputStream, url, DEFAULT_TEE_LIMIT);
+	}
+	
+	/**
+	 * @param teeLimit count of first body bytes kept for {@link #getBodyHead()} and {@link #toString()}, 0 to keep nothing
+	 */
+	public StreamingResponseData(final InputStream inputStream, final String url, final int teeLimit) {
+		mTee = teeLimit > 0 ? new TeeInputStream(inputStream, teeLimit) : null;
+		mInputStream = mTee != null ? mTee : inputStream;
+		mUrl = url;
+		mErrMsg = null;
+	}
+	
+	public StreamingResponseData(final String errMsg, final String url) {
+		mInputStream = null;
+		mTee = null;
+		mUrl = url;
+		mErrMsg = errMsg;
+	}
+	
+	/**
+	 * @return body, null for error responses. It can be read only once.
+	 */
+	public InputStream getInputStream() {
+		return mInputStream;
+	}
+	
+	/**
+	 * @return error message of error responses, null for responses with body
+	 */
+	public String getErrMsg() {
+		return mErrMsg;
+	}
+	
+	/**
+	 * @return kept beginning of the body read so far, e.g. to report a body that failed to parse, null if nothing is kept
+	 */
+	public String getBodyHead() {
+		return mTee == null ? null : mTee.getHead();
+	}
+	
+	public String getUrl() {
+		return mUrl;
+	}
+	
+	@Override
+	public void close() throws IOException {
+		if (mInputStream != null) {
+			mInputStream.close();
+		}
+	}
+	
+	@Override
+	public String toString() {
+		if (mInputStream == null) {
+			return mUrl + " result: " + mErrMsg;
+		}
+		return mTee == null
+			? mUrl + " result: stream"
+			: mUrl + " result: " + mTee.getCount() + " bytes read, starts with: " + mTee.getHead();
+	}
+}
@@ -14,21 +14,39 @@ public abstract class UniqueFieldsMap implements IUniqueFieldsMap {
 	
 	private static final String KEY_EMPTY = "";
 	private final Map<Class<?>, List<UniqueKey>> KEY_CACHE = new ConcurrentHashMap<>();
+	private final Object mFillLock = new Object();
 	private volatile Map<Class<?>, UniqueKey> mUniqueFields;
+	// target of addUniqueKey while fill() runs, guarded by mFillLock
+	private Map<Class<?>, UniqueKey> mFillingFields = null;
 	
-	@Nullable
-	@Override
-	public <T> String getUniqueKey(final T object, final Class classType) {
-		if (mUniqueFields == null) {
-			mUniqueFields = new HashMap<>();
-			fill();
+	private Map<Class<?>, UniqueKey> getUniqueFields() {
+		Map<Class<?>, UniqueKey> uniqueFields = mUniqueFields;
+		if (uniqueFields == null) {
+			synchronized (mFillLock) {
+				uniqueFields = mUniqueFields;
+				if (uniqueFields == null) {
+					mFillingFields = new HashMap<>();
+					try {
+						fill();
+						uniqueFields = mFillingFields;
+					} finally {
+						mFillingFields = null;
+					}
+					mUniqueFields = uniqueFields;
+				}
+			}
 		}
+		return uniqueFields;
+	}
+	
+	private List<UniqueKey> getKeys(final Class classType) {
 		List<UniqueKey> keys = KEY_CACHE.get(classType);
 		if (keys == null) {
+			// list is published only when complete, other threads may build the same list meanwhile
 			keys = new ArrayList<>();
-			KEY_CACHE.put(classType, keys);
 			if (UniqueObject.class.isAssignableFrom(classType)) {
-				final UniqueKey uniqueKey = mUniqueFields.get(classType);
+				final Map<Class<?>, UniqueKey> uniqueFields = getUniqueFields();
+				final UniqueKey uniqueKey = uniqueFields.get(classType);
 				if (uniqueKey != null) {
 					keys.add(uniqueKey);
 				}
@@ -37,26 +55,61 @@ public abstract class UniqueFieldsMap implements IUniqueFieldsMap {
 					 cls != null && !Object.class.equals(cls);
 					 cls = cls.getSuperclass()) {
 					
-					final UniqueKey superClassUniqueKey = mUniqueFields.get(cls);
+					final UniqueKey superClassUniqueKey = uniqueFields.get(cls);
 					if (superClassUniqueKey != null) {
 						keys.add(superClassUniqueKey);
 					}
 				}
 			}
+			KEY_CACHE.put(classType, keys);
 		}
+		return keys;
+	}
+	
+	@Nullable
+	@Override
+	public <T> String getUniqueKey(final T object, final Class classType) {
+		final List<UniqueKey> keys = getKeys(classType);
 		if (!keys.isEmpty()) {
 			final StringBuilder sb = new StringBuilder();
 			for (int i = 0; i < keys.size(); i++) {
 				sb.append(keys.get(i).getUniqueKey(object));
 			}
-			return sb.toString().intern();
+			return sb.toString();
 		}
 		return KEY_EMPTY;
 	}
 	
+	@Override
+	public <T> boolean fillUniqueKey(final T object, final Class classType, final UniqueObjectKey.Builder builder) {
+		builder.reset();
+		final List<UniqueKey> keys = getKeys(classType);
+		for (int i = 0; i < keys.size(); i++) {
+			//noinspection unchecked
+			keys.get(i).fillKey(object, builder);
+		}
+		return !keys.isEmpty();
+	}
+	
+	@Nullable
+	@Override
+	public <T> UniqueObjectKey getUniqueObjectKey(final T object, final Class classType) {
+		final UniqueObjectKey.Builder builder = UniqueObjectKey.Builder.forCurrentThread();
+		return fillUniqueKey(object, classType, builder) ? builder.build() : null;
+	}
+	
 	@Override
 	public <T> void addUniqueKey(final Class<T> classType, final UniqueKey<T> uniqueKey) {
-		mUniqueFields.put(classType, uniqueKey);
+		synchronized (mFillLock) {
+			if (mFillingFields != null) {
+				mFillingFields.put(classType, uniqueKey);
+			} else {
+				final Map<Class<?>, UniqueKey> uniqueFields = new HashMap<>(getUniqueFields());
+				uniqueFields.put(classType, uniqueKey);
+				mUniqueFields = uniqueFields;
+				KEY_CACHE.clear();
+			}
+		}
 	}
 	
 	protected abstract void fill();
@@ -3,5 +3,15 @@ package ru.ivi.mapping.value;
 
 public interface UniqueKey <T>{
 
+	/**
+	 * String form of the key, for debugging and blobs of formats without structured keys.
+	 */
 	String getUniqueKey(final T object);
+
+	/**
+	 * Adds values of unique fields to the builder, generated keys add them without building strings.
+	 */
+	default void fillKey(final T object, final UniqueObjectKey.Builder builder) {
+		builder.add(getUniqueKey(object));
+	}
 }
@@ -0,0 +1,200 @@
+package ru.ivi.mapping.value;
+
+import java.util.Arrays;
+
+/**
+ * Unique key of a {@link UniqueObject}: primitive values and strings of its unique fields plus ids of classes
+ * declaring them, with a 64-bit hash computed once. Used as key of {@link IUniqueObjectsPool} and
+ * {@link ru.ivi.mapping.SerializedBytesCache} instead of concatenated strings.
+ */
+public final class UniqueObjectKey {
+	
+	private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+	private static final long[] NO_LONGS = new long[0];
+	private static final String[] NO_STRINGS = new String[0];
+	
+	private final long[] mLongs;
+	private final String[] mStrings;
+	private final long mHash;
+	
+	public UniqueObjectKey(final long[] longs, final String[] strings) {
+		this(longs, strings, hash(longs, longs.length, strings, strings.length));
+	}
+	
+	private UniqueObjectKey(final long[] longs, final String[] strings, final long hash) {
+		mLongs = longs;
+		mStrings = strings;
+		mHash = hash;
+	}
+	
+	public int getLongsCount() {
+		return mLongs.length;
+	}
+	
+	public long getLong(final int index) {
+		return mLongs[index];
+	}
+	
+	public int getStringsCount() {
+		return mStrings.length;
+	}
+	
+	public String getString(final int index) {
+		return mStrings[index];
+	}
+	
+	public long getHash64() {
+		return mHash;
+	}
+	
+	@Override
+	public int hashCode() {
+		return (int) (mHash ^ (mHash >>> 32));
+	}
+	
+	@Override
+	public boolean equals(final Object obj) {
+		if (this == obj) {
+			return true;
+		}
+		if (!(obj instanceof UniqueObjectKey)) {
+			return false;
+		}
+		final UniqueObjectKey other = (UniqueObjectKey) obj;
+		return mHash == other.mHash && Arrays.equals(mLongs, other.mLongs) && Arrays.equals(mStrings, other.mStrings);
+	}
+	
+	/**
+	 * Debug form only, not used for comparison.
+	 */
+	@Override
+	public String toString() {
+		return "UniqueObjectKey" + Arrays.toString(mLongs) + Arrays.toString(mStrings);
+	}
+	
+	private static long hash(final long[] longs, final int longsCount, final String[] strings, final int stringsCount) {
+		long hash = longsCount * 31 + stringsCount;
+		for (int i = 0; i < longsCount; i++) {
+			hash = (hash ^ longs[i]) * HASH_MULTIPLIER;
+		}
+		for (int i = 0; i < stringsCount; i++) {
+			final String string = strings[i];
+			hash = (hash ^ (string == null ? 0 : string.hashCode())) * HASH_MULTIPLIER;
+		}
+		return hash ^ (hash >>> 29);
+	}
+	
+	/**
+	 * Reusable builder, {@link #matches(UniqueObjectKey)} compares with a key without building a new one.
+	 */
+	public static final class Builder {
+		
+		private static final ThreadLocal<Builder> THREAD_BUILDER = new ThreadLocal<Builder>() {
+			@Override
+			protected Builder initialValue() {
+				return new Builder();
+			}
+		};
+		
+		private long[] mLongs = new long[4];
+		private String[] mStrings = new String[4];
+		private int mLongsCount = 0;
+		private int mStringsCount = 0;
+		
+		/**
+		 * Builder shared by key lookups of the calling thread, valid until the next one fills it.
+		 */
+		public static Builder forCurrentThread() {
+			return THREAD_BUILDER.get();
+		}
+		
+		public Builder reset() {
+			mLongsCount = 0;
+			for (int i = 0; i < mStringsCount; i++) {
+				mStrings[i] = null;
+			}
+			mStringsCount = 0;
+			return this;
+		}
+		
+		public boolean isEmpty() {
+			return mLongsCount == 0 && mStringsCount == 0;
+		}
+		
+		public Builder add(final long value) {
+			if (mLongsCount == mLongs.length) {
+				mLongs = Arrays.copyOf(mLongs, mLongsCount << 1);
+			}
+			mLongs[mLongsCount++] = value;
+			return this;
+		}
+		
+		public Builder add(final int value) {
+			return add((long) value);
+		}
+		
+		public Builder add(final boolean value) {
+			return add(value ? 1L : 0L);
+		}
+		
+		public Builder add(final double value) {
+			return add(Double.doubleToLongBits(value));
+		}
+		
+		public Builder add(final float value) {
+			return add((long) Float.floatToIntBits(value));
+		}
+		
+		public Builder add(final String value) {
+			if (mStringsCount == mStrings.length) {
+				mStrings = Arrays.copyOf(mStrings, mStringsCount << 1);
+			}
+			mStrings[mStringsCount++] = value;
+			return this;
+		}
+		
+		public Builder add(final Object value) {
+			return add(value == null ? null : String.valueOf(value));
+		}
+		
+		public int getLongsCount() {
+			return mLongsCount;
+		}
+		
+		public long getLong(final int index) {
+			return mLongs[index];
+		}
+		
+		public int getStringsCount() {
+			return mStringsCount;
+		}
+		
+		public String getString(final int index) {
+			return mStrings[index];
+		}
+		
+		public boolean matches(final UniqueObjectKey key) {
+			if (key.mLongs.length != mLongsCount || key.mStrings.length != mStringsCount) {
+				return false;
+			}
+			for (int i = 0; i < mLongsCount; i++) {
+				if (key.mLongs[i] != mLongs[i]) {
+					return false;
+				}
+			}
+			for (int i = 0; i < mStringsCount; i++) {
+				final String string = mStrings[i];
+				if (string == null ? key.mStrings[i] != null : !string.equals(key.mStrings[i])) {
+					return false;
+				}
+			}
+			return true;
+		}
+		
+		public UniqueObjectKey build() {
+			final long[] longs = mLongsCount == 0 ? NO_LONGS : Arrays.copyOf(mLongs, mLongsCount);
+			final String[] strings = mStringsCount == 0 ? NO_STRINGS : Arrays.copyOf(mStrings, mStringsCount);
+			return new UniqueObjectKey(longs, strings, hash(mLongs, mLongsCount, mStrings, mStringsCount));
+		}
+	}
+}
@@ -0,0 +1,222 @@
+package ru.ivi.mapping.value;
+
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Default {@link IUniqueObjectsPool}: LRU split into independently locked segments by key hash,
+ * every segment keeps at most its share of {@code maxSize} objects.
+ */
+public class UniqueObjectsPool implements IUniqueObjectsPool {
+	
+	public static final int DEFAULT_MAX_SIZE = 16 * 1024;
+	private static final int SEGMENTS_COUNT = 16;
+	
+	private final Segment[] mSegments = new Segment[SEGMENTS_COUNT];
+	private final boolean mWeakValues;
+	private final AtomicLong mHitCount = new AtomicLong();
+	private final AtomicLong mMissCount = new AtomicLong();
+	private final AtomicLong mEvictionCount = new AtomicLong();
+	
+	public UniqueObjectsPool() {
+		this(DEFAULT_MAX_SIZE, false);
+	}
+	
+	/**
+	 * @param maxSize    count of objects kept, least recently used are evicted
+	 * @param weakValues keep objects by weak references, so the pool itself does not hold objects in memory
+	 */
+	public UniqueObjectsPool(final int maxSize, final boolean weakValues) {
+		mWeakValues = weakValues;
+		final int segmentSize = Math.max(1, (maxSize + SEGMENTS_COUNT - 1) / SEGMENTS_COUNT);
+		for (int i = 0; i < SEGMENTS_COUNT; i++) {
+			mSegments[i] = new Segment(segmentSize);
+		}
+	}
+	
+	private Segment segmentFor(final Object key) {
+		final int hash = key.hashCode();
+		return mSegments[(hash ^ (hash >>> 16)) & (SEGMENTS_COUNT - 1)];
+	}
+	
+	@Override
+	public Object get(final Object key) {
+		if (key == null) {
+			return null;
+		}
+		final Segment segment = segmentFor(key);
+		Object value;
+		synchronized (segment) {
+			segment.purge();
+			value = segment.get(key);
+			if (value instanceof WeakReference) {
+				value = ((WeakReference) value).get();
+				if (value == null) {
+					segment.remove(key);
+				}
+			}
+		}
+		(value == null ? mMissCount : mHitCount).incrementAndGet();
+		return value;
+	}
+	
+	@Override
+	public void put(final Object key, final Object value) {
+		if (key == null || value == null) {
+			return;
+		}
+		final Segment segment = segmentFor(key);
+		synchronized (segment) {
+			segment.purge();
+			segment.put(key, mWeakValues ? new KeyedReference(key, value, segment.mQueue) : value);
+		}
+	}
+	
+	@Override
+	public Object putIfAbsent(final Object key, final Object value) {
+		if (key == null || value == null) {
+			return null;
+		}
+		final Segment segment = segmentFor(key);
+		synchronized (segment) {
+			segment.purge();
+			Object current = segment.get(key);
+			if (current instanceof WeakReference) {
+				current = ((WeakReference) current).get();
+			}
+			if (current != null) {
+				return current;
+			}
+			segment.put(key, mWeakValues ? new KeyedReference(key, value, segment.mQueue) : value);
+		}
+		return null;
+	}
+	
+	@Override
+	public void remove(final Object key) {
+		if (key == null) {
+			return;
+		}
+		final Segment segment = segmentFor(key);
+		synchronized (segment) {
+			segment.remove(key);
+		}
+	}
+	
+	@Override
+	public void clear() {
+		for (final Segment segment : mSegments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+	
+	@Override
+	public int size() {
+		int size = 0;
+		for (final Segment segment : mSegments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+	
+	@Override
+	public long getHitCount() {
+		return mHitCount.get();
+	}
+	
+	@Override
+	public long getMissCount() {
+		return mMissCount.get();
+	}
+	
+	@Override
+	public long getEvictionCount() {
+		return mEvictionCount.get();
+	}
+	
+	/**
+	 * Weak value remembering its key, so the entry is removed when the value is collected.
+	 */
+	private static final class KeyedReference extends WeakReference<Object> {
+		
+		private final Object mKey;
+		// false once the entry is replaced or removed, so a late purge does not remove a newer entry
+		private boolean mMapped = true;
+		
+		KeyedReference(final Object key, final Object value, final ReferenceQueue<Object> queue) {
+			super(value, queue);
+			mKey = key;
+		}
+		
+		static void unmap(final Object value) {
+			if (value instanceof KeyedReference) {
+				((KeyedReference) value).mMapped = false;
+			}
+		}
+	}
+	
+	@SuppressWarnings("serial")
+	private class Segment extends LinkedHashMap<Object, Object> {
+		
+		private final int mMaxSize;
+		private final ReferenceQueue<Object> mQueue = new ReferenceQueue<>();
+		
+		Segment(final int maxSize) {
+			super(16, 0.75f, true);
+			mMaxSize = maxSize;
+		}
+		
+		@Override
+		public Object put(final Object key, final Object value) {
+			final Object previous = super.put(key, value);
+			KeyedReference.unmap(previous);
+			return previous;
+		}
+		
+		@Override
+		public Object remove(final Object key) {
+			final Object previous = super.remove(key);
+			KeyedReference.unmap(previous);
+			return previous;
+		}
+		
+		@Override
+		public void clear() {
+			for (final Object value : values()) {
+				KeyedReference.unmap(value);
+			}
+			super.clear();
+		}
+		
+		@Override
+		protected boolean removeEldestEntry(final Map.Entry<Object, Object> eldest) {
+			if (size() > mMaxSize) {
+				mEvictionCount.incrementAndGet();
+				KeyedReference.unmap(eldest.getValue());
+				return true;
+			}
+			return false;
+		}
+		
+		/**
+		 * Removes entries of collected weak values, called under the segment lock.
+		 * Entries are not looked up, so the access order of live entries is kept.
+		 */
+		void purge() {
+			for (Reference<?> ref = mQueue.poll(); ref != null; ref = mQueue.poll()) {
+				final KeyedReference keyed = (KeyedReference) ref;
+				if (keyed.mMapped) {
+					remove(keyed.mKey);
+				}
+			}
+		}
+	}
+}
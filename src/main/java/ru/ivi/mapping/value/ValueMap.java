@@ -1,17 +1,25 @@
 package ru.ivi.mapping.value;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+
+import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import ru.ivi.mapping.IFieldInfo;
 import ru.ivi.mapping.ObjectMap;
+import ru.ivi.mapping.Parcel;
+import ru.ivi.mapping.ReadableParcel;
 import ru.ivi.utils.ReflectUtils;
 
 
 public abstract class ValueMap implements IValueMap {
 	private final Object mFillLock = new Object();
 	@SuppressWarnings("WeakerAccess")
-	private volatile Map<Class<?>, ObjectMap<String, IFieldInfo>> mValues = null;
+	private volatile ConcurrentHashMap<Class<?>, ObjectMap<String, IFieldInfo>> mValues = null;
 	
 	public ValueMap() {
 	}
@@ -45,7 +53,8 @@ public abstract class ValueMap implements IValueMap {
 						}
 					}
 					
-					mValues = valuesMap;
+					// read concurrently, maps of subclasses without own fields are added later
+					mValues = new ConcurrentHashMap<>(valuesMap);
 				}
 			}
 		}
@@ -56,11 +65,12 @@ public abstract class ValueMap implements IValueMap {
 			for (Class<?> superClass = classType; superClass != null && superClass != Object.class; superClass = superClass.getSuperclass()) {
 				final ObjectMap<String, IFieldInfo> superMap = mValues.get(superClass);
 				if (superMap != null) {
-					objectMap = new EmptyFieldsClassMap();
+					objectMap = new EmptyFieldsClassMap(superMap);
 					objectMap.addFields(superMap.getFields());
 					objectMap.addParentVersionHash(superMap.getCurrentVersion());
-					synchronized (mFillLock) {
-						mValues.put(classType, objectMap);
+					final ObjectMap<String, IFieldInfo> existing = mValues.putIfAbsent(classType, objectMap);
+					if (existing != null) {
+						objectMap = existing;
 					}
 					
 					break;
@@ -75,6 +85,12 @@ public abstract class ValueMap implements IValueMap {
 	
 	private static class EmptyFieldsClassMap extends ObjectMap<String, IFieldInfo> {
 		
+		private final ObjectMap<String, IFieldInfo> mSuperMap;
+		
+		EmptyFieldsClassMap(final ObjectMap<String, IFieldInfo> superMap) {
+			mSuperMap = superMap;
+		}
+		
 		@Override
 		protected void fill(final Map mMap) {
 			//nothing
@@ -96,5 +112,25 @@ public abstract class ValueMap implements IValueMap {
 			//nothing
 			return 0;
 		}
+		
+		@Override
+		public boolean readJsonField(final Object obj, final String name, final JsonParser parser, final JsonNode sourceNode) throws IOException {
+			return mSuperMap.readJsonField(obj, name, parser, sourceNode);
+		}
+		
+		@Override
+		public void writeJson(final Object obj, final JsonGenerator generator) throws IOException {
+			mSuperMap.writeJson(obj, generator);
+		}
+		
+		@Override
+		public void writeFields(final Object obj, final Parcel parcel) {
+			mSuperMap.writeFields(obj, parcel);
+		}
+		
+		@Override
+		public void readFields(final Object obj, final ReadableParcel parcel) {
+			mSuperMap.readFields(obj, parcel);
+		}
 	}
 }
@@ -0,0 +1,10 @@
+package ru.ivi.mapping.value;
+
+
+public interface VersionedObject {
+	
+	/**
+	 * Changes whenever serialized content of the object changes.
+	 */
+	long getContentVersion();
+}
@@ -0,0 +1,48 @@
+package ru.ivi.utils;
+
+import java.util.Arrays;
+
+/**
+ * Growable {@code double[]}, see {@link IntArrayBuffer}.
+ */
+public final class DoubleArrayBuffer {
+	
+	private static final int DEFAULT_CAPACITY = 16;
+	
+	private double[] mValues;
+	private int mSize = 0;
+	
+	public DoubleArrayBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	public DoubleArrayBuffer(final int capacity) {
+		mValues = new double[capacity];
+	}
+	
+	public void add(final double value) {
+		if (mSize == mValues.length) {
+			mValues = Arrays.copyOf(mValues, Math.max(DEFAULT_CAPACITY, mSize << 1));
+		}
+		mValues[mSize++] = value;
+	}
+	
+	public double get(final int index) {
+		if (index >= mSize) {
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + mSize);
+		}
+		return mValues[index];
+	}
+	
+	public int size() {
+		return mSize;
+	}
+	
+	public void clear() {
+		mSize = 0;
+	}
+	
+	public double[] toArray() {
+		return mSize == 0 ? ArrayUtils.EMPTY_DOUBLE_ARRAY : Arrays.copyOf(mValues, mSize);
+	}
+}
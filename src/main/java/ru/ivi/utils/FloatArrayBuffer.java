@@ -0,0 +1,48 @@
+package ru.ivi.utils;
+
+import java.util.Arrays;
+
+/**
+ * Growable {@code float[]}, see {@link IntArrayBuffer}.
+ */
+public final class FloatArrayBuffer {
+	
+	private static final int DEFAULT_CAPACITY = 16;
+	
+	private float[] mValues;
+	private int mSize = 0;
+	
+	public FloatArrayBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	public FloatArrayBuffer(final int capacity) {
+		mValues = new float[capacity];
+	}
+	
+	public void add(final float value) {
+		if (mSize == mValues.length) {
+			mValues = Arrays.copyOf(mValues, Math.max(DEFAULT_CAPACITY, mSize << 1));
+		}
+		mValues[mSize++] = value;
+	}
+	
+	public float get(final int index) {
+		if (index >= mSize) {
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + mSize);
+		}
+		return mValues[index];
+	}
+	
+	public int size() {
+		return mSize;
+	}
+	
+	public void clear() {
+		mSize = 0;
+	}
+	
+	public float[] toArray() {
+		return mSize == 0 ? ArrayUtils.EMPTY_FLOAT_ARRAY : Arrays.copyOf(mValues, mSize);
+	}
+}
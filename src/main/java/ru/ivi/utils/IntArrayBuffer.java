@@ -0,0 +1,87 @@
+package ru.ivi.utils;
+
+import java.util.Arrays;
+
+/**
+ * Growable {@code int[]} to collect values of unknown count without boxing, {@link #toArray()} makes the only trimmed copy.
+ */
+public final class IntArrayBuffer {
+	
+	private static final int DEFAULT_CAPACITY = 16;
+	
+	private int[] mValues;
+	private int mSize = 0;
+	
+	public IntArrayBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	public IntArrayBuffer(final int capacity) {
+		mValues = new int[capacity];
+	}
+	
+	public void add(final int value) {
+		if (mSize == mValues.length) {
+			mValues = Arrays.copyOf(mValues, Math.max(DEFAULT_CAPACITY, mSize << 1));
+		}
+		mValues[mSize++] = value;
+	}
+	
+	public int get(final int index) {
+		if (index >= mSize) {
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + mSize);
+		}
+		return mValues[index];
+	}
+	
+	public int size() {
+		return mSize;
+	}
+	
+	public void clear() {
+		mSize = 0;
+	}
+	
+	public int[] toArray() {
+		return mSize == 0 ? ArrayUtils.EMPTY_INT_ARRAY : Arrays.copyOf(mValues, mSize);
+	}
+	
+	/**
+	 * Values narrowed to bytes, for byte arrays collected as ints.
+	 */
+	public byte[] toByteArray() {
+		if (mSize == 0) {
+			return ArrayUtils.EMPTY_BYTE_ARRAY;
+		}
+		final byte[] result = new byte[mSize];
+		for (int i = 0; i < mSize; i++) {
+			result[i] = (byte) mValues[i];
+		}
+		return result;
+	}
+	
+	public char[] toCharArray() {
+		if (mSize == 0) {
+			return ArrayUtils.EMPTY_CHAR_ARRAY;
+		}
+		final char[] result = new char[mSize];
+		for (int i = 0; i < mSize; i++) {
+			result[i] = (char) mValues[i];
+		}
+		return result;
+	}
+	
+	/**
+	 * Non-zero values are true.
+	 */
+	public boolean[] toBooleanArray() {
+		if (mSize == 0) {
+			return ArrayUtils.EMPTY_BOOLEAN_ARRAY;
+		}
+		final boolean[] result = new boolean[mSize];
+		for (int i = 0; i < mSize; i++) {
+			result[i] = mValues[i] != 0;
+		}
+		return result;
+	}
+}
@@ -0,0 +1,48 @@
+package ru.ivi.utils;
+
+import java.util.Arrays;
+
+/**
+ * Growable {@code long[]}, see {@link IntArrayBuffer}.
+ */
+public final class LongArrayBuffer {
+	
+	private static final int DEFAULT_CAPACITY = 16;
+	
+	private long[] mValues;
+	private int mSize = 0;
+	
+	public LongArrayBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	public LongArrayBuffer(final int capacity) {
+		mValues = new long[capacity];
+	}
+	
+	public void add(final long value) {
+		if (mSize == mValues.length) {
+			mValues = Arrays.copyOf(mValues, Math.max(DEFAULT_CAPACITY, mSize << 1));
+		}
+		mValues[mSize++] = value;
+	}
+	
+	public long get(final int index) {
+		if (index >= mSize) {
+			throw new IndexOutOfBoundsException("index=" + index + " size=" + mSize);
+		}
+		return mValues[index];
+	}
+	
+	public int size() {
+		return mSize;
+	}
+	
+	public void clear() {
+		mSize = 0;
+	}
+	
+	public long[] toArray() {
+		return mSize == 0 ? ArrayUtils.EMPTY_LONG_ARRAY : Arrays.copyOf(mValues, mSize);
+	}
+}
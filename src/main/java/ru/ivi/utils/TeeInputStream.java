@@ -0,0 +1,100 @@
+package ru.ivi.utils;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+/**
+ * Passes reads through and keeps a copy of the first {@code limit} bytes, for logging of streamed responses.
+ */
+public final class TeeInputStream extends FilterInputStream {
+	
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final int SKIP_BUFFER_SIZE = 512;
+	
+	private final byte[] mHead;
+	private int mHeadLength = 0;
+	private long mCount = 0;
+	
+	public TeeInputStream(final InputStream in, final int limit) {
+		super(in);
+		mHead = new byte[limit];
+	}
+	
+	@Override
+	public int read() throws IOException {
+		final int b = in.read();
+		if (b >= 0) {
+			if (mHeadLength < mHead.length) {
+				mHead[mHeadLength++] = (byte) b;
+			}
+			mCount++;
+		}
+		return b;
+	}
+	
+	@Override
+	public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+		final int count = in.read(buffer, offset, length);
+		if (count > 0) {
+			final int copied = Math.min(count, mHead.length - mHeadLength);
+			if (copied > 0) {
+				System.arraycopy(buffer, offset, mHead, mHeadLength, copied);
+				mHeadLength += copied;
+			}
+			mCount += count;
+		}
+		return count;
+	}
+	
+	/**
+	 * Skipped bytes are read, so the kept head has no gaps.
+	 */
+	@Override
+	public long skip(final long count) throws IOException {
+		if (count <= 0) {
+			return 0;
+		}
+		final byte[] buffer = new byte[(int) Math.min(count, SKIP_BUFFER_SIZE)];
+		long skipped = 0;
+		while (skipped < count) {
+			final int read = read(buffer, 0, (int) Math.min(count - skipped, buffer.length));
+			if (read < 0) {
+				break;
+			}
+			skipped += read;
+		}
+		return skipped;
+	}
+	
+	@Override
+	public boolean markSupported() {
+		return false;
+	}
+	
+	@Override
+	public synchronized void mark(final int readLimit) {
+		//not supported
+	}
+	
+	@Override
+	public synchronized void reset() throws IOException {
+		throw new IOException("mark/reset not supported");
+	}
+	
+	/**
+	 * Count of bytes read so far.
+	 */
+	public long getCount() {
+		return mCount;
+	}
+	
+	public int getHeadLength() {
+		return mHeadLength;
+	}
+	
+	public String getHead() {
+		return new String(mHead, 0, mHeadLength, UTF_8);
+	}
+}